@@ -0,0 +1,260 @@
+package EstruturaDeDadosListaEncadeada;
+
+import entities.Account;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Alternativa colunar ao TransactionHistory para históricos grandes.
+// Em vez de um objeto por transação (Long boxed, String, LocalDate e duas Account inteiras), cada campo fica em
+// um array primitivo próprio, dividido em blocos de CHUNK_SIZE posições que são alocados conforme o histórico cresce:
+//   id (long) | valor em centavos (long) | data em epoch day (int) | conta origem (long) | conta destino (long) | tipo (short)
+// O tipo é um código de um dicionário pequeno (TED, PIX, ...), então cada linha ocupa ~38 bytes,
+// mais 4 bytes por conta no índice por conta. As linhas são lidas pela posição (0 até size() - 1).
+// Não é thread-safe: quem compartilhar o histórico entre threads deve sincronizar o acesso.
+public class ColumnarTransactionHistory {
+
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS; // 16384 linhas por bloco
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final long NO_ACCOUNT = 0L; // Ids gerados começam em 1
+
+    private final List<long[]> ids = new ArrayList<>();
+    private final List<long[]> amountsCents = new ArrayList<>();
+    private final List<int[]> epochDays = new ArrayList<>();
+    private final List<long[]> originIds = new ArrayList<>();
+    private final List<long[]> destinationIds = new ArrayList<>();
+    private final List<short[]> typeCodes = new ArrayList<>();
+    private int size;
+
+    // Dicionário de tipos: código -> texto e texto -> código
+    private final List<String> typeNames = new ArrayList<>();
+    private final Map<String, Short> typeCodeByName = new HashMap<>();
+
+    private final Map<Long, IntList> rowsByAccount = new HashMap<>();
+    private boolean sortedByDate = true; // Enquanto for true, consultas por data usam busca binária
+
+    public void add(long id, String typeTransaction, double value, LocalDate date, Account originAccount, Account destinationAccount) {
+        long cents = BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_EVEN).movePointRight(2).longValueExact();
+        add(id, typeTransaction, cents, date.toEpochDay(), accountId(originAccount), accountId(destinationAccount));
+    }
+
+    public void add(long id, String typeTransaction, long amountCents, long epochDay, long originAccountId, long destinationAccountId) {
+        int chunk = size >>> CHUNK_BITS;
+        int offset = size & CHUNK_MASK;
+        if (chunk == ids.size()) {
+            ids.add(new long[CHUNK_SIZE]);
+            amountsCents.add(new long[CHUNK_SIZE]);
+            epochDays.add(new int[CHUNK_SIZE]);
+            originIds.add(new long[CHUNK_SIZE]);
+            destinationIds.add(new long[CHUNK_SIZE]);
+            typeCodes.add(new short[CHUNK_SIZE]);
+        }
+        if (size > 0 && epochDay < getEpochDay(size - 1)) {
+            sortedByDate = false;
+        }
+        ids.get(chunk)[offset] = id;
+        amountsCents.get(chunk)[offset] = amountCents;
+        epochDays.get(chunk)[offset] = Math.toIntExact(epochDay);
+        originIds.get(chunk)[offset] = originAccountId;
+        destinationIds.get(chunk)[offset] = destinationAccountId;
+        typeCodes.get(chunk)[offset] = typeCode(typeTransaction);
+
+        int row = size++;
+        indexByAccount(originAccountId, row);
+        if (destinationAccountId != originAccountId) {
+            indexByAccount(destinationAccountId, row);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getId(int row) {
+        checkRow(row);
+        return ids.get(row >>> CHUNK_BITS)[row & CHUNK_MASK];
+    }
+
+    public long getAmountCents(int row) {
+        checkRow(row);
+        return amountsCents.get(row >>> CHUNK_BITS)[row & CHUNK_MASK];
+    }
+
+    public BigDecimal getValue(int row) {
+        return BigDecimal.valueOf(getAmountCents(row), 2);
+    }
+
+    public long getEpochDay(int row) {
+        checkRow(row);
+        return epochDays.get(row >>> CHUNK_BITS)[row & CHUNK_MASK];
+    }
+
+    public LocalDate getDate(int row) {
+        return LocalDate.ofEpochDay(getEpochDay(row));
+    }
+
+    public long getOriginAccountId(int row) {
+        checkRow(row);
+        return originIds.get(row >>> CHUNK_BITS)[row & CHUNK_MASK];
+    }
+
+    public long getDestinationAccountId(int row) {
+        checkRow(row);
+        return destinationIds.get(row >>> CHUNK_BITS)[row & CHUNK_MASK];
+    }
+
+    public String getTypeTransaction(int row) {
+        checkRow(row);
+        short code = typeCodes.get(row >>> CHUNK_BITS)[row & CHUNK_MASK];
+        return code < 0 ? null : typeNames.get(code);
+    }
+
+    // Posições das linhas em que a conta é origem ou destino, em ordem de inserção
+    public int[] findRowsByAccount(long accountId) {
+        IntList rows = rowsByAccount.get(accountId);
+        return rows == null ? new int[0] : Arrays.copyOf(rows.values, rows.size);
+    }
+
+    // Posições das linhas com data entre from e to (inclusive)
+    public int[] findRowsByDateRange(LocalDate from, LocalDate to) {
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        if (fromDay > toDay || size == 0) {
+            return new int[0];
+        }
+        IntList rows = new IntList();
+        if (sortedByDate) {
+            // Histórico em ordem de data: a primeira linha do intervalo sai por busca binária
+            for (int row = firstRowOnOrAfter(fromDay); row < size && getEpochDay(row) <= toDay; row++) {
+                rows.add(row);
+            }
+        } else {
+            for (int row = 0; row < size; row++) {
+                long day = getEpochDay(row);
+                if (day >= fromDay && day <= toDay) {
+                    rows.add(row);
+                }
+            }
+        }
+        return Arrays.copyOf(rows.values, rows.size);
+    }
+
+    // Percorre todas as linhas em ordem de inserção, bloco a bloco
+    public void forEach(TransactionRowVisitor visitor) {
+        for (int row = 0; row < size; row++) {
+            int chunk = row >>> CHUNK_BITS;
+            int offset = row & CHUNK_MASK;
+            short code = typeCodes.get(chunk)[offset];
+            visitor.visit(row, ids.get(chunk)[offset], code < 0 ? null : typeNames.get(code),
+                    amountsCents.get(chunk)[offset], epochDays.get(chunk)[offset],
+                    originIds.get(chunk)[offset], destinationIds.get(chunk)[offset]);
+        }
+    }
+
+    // Memória aproximada dos arrays (blocos alocados + índice por conta), sem o cabeçalho dos objetos
+    public long estimatedMemoryBytes() {
+        long perRow = Long.BYTES * 4L + Integer.BYTES + Short.BYTES;
+        long bytes = (long) ids.size() * CHUNK_SIZE * perRow;
+        for (IntList rows : rowsByAccount.values()) {
+            bytes += (long) rows.values.length * Integer.BYTES;
+        }
+        return bytes;
+    }
+
+    public void printHistory() {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024);
+        try {
+            printHistory(out);
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error printing transaction history: " + e.getMessage());
+        }
+    }
+
+    public void printHistory(Writer out) throws IOException {
+        for (int row = 0; row < size; row++) {
+            out.append("- ID: ").append(Long.toString(getId(row)))
+                    .append(" | Tipo: ").append(getTypeTransaction(row))
+                    .append(" | Valor: R$ ").append(String.format("%.2f", getValue(row)))
+                    .append(" | Data: ").append(getDate(row).toString())
+                    .append(" | Origem: conta #").append(Long.toString(getOriginAccountId(row)))
+                    .append(" | Destino: conta #").append(Long.toString(getDestinationAccountId(row)))
+                    .append('\n');
+        }
+    }
+
+    private int firstRowOnOrAfter(long epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getEpochDay(mid) < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private short typeCode(String typeTransaction) {
+        if (typeTransaction == null) {
+            return -1;
+        }
+        Short code = typeCodeByName.get(typeTransaction);
+        if (code == null) {
+            if (typeNames.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct transaction types for the history dictionary.");
+            }
+            code = (short) typeNames.size();
+            typeNames.add(typeTransaction);
+            typeCodeByName.put(typeTransaction, code);
+        }
+        return code;
+    }
+
+    private void indexByAccount(long accountId, int row) {
+        if (accountId == NO_ACCOUNT) {
+            return;
+        }
+        rowsByAccount.computeIfAbsent(accountId, id -> new IntList()).add(row);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for history of size " + size);
+        }
+    }
+
+    private static long accountId(Account account) {
+        return account == null || account.getId() == null ? NO_ACCOUNT : account.getId();
+    }
+
+    // Lista de int sem boxing para o índice por conta
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
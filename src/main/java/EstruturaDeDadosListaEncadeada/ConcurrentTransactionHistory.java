@@ -0,0 +1,161 @@
+package EstruturaDeDadosListaEncadeada;
+
+import entities.Account;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+// Versão do TransactionHistory para vários produtores ao mesmo tempo, sem locks.
+// - add(): o novo nó é ligado com CAS no "next" do último nó e depois o tail avança (fila de Michael-Scott).
+//   Se o tail estiver atrasado, quem chega ajuda a avançá-lo, então nenhuma thread fica esperando outra.
+// - iterator(): fotografia consistente. O iterador fixa o último nó ligado no momento em que é criado e
+//   para nele; transações adicionadas depois não aparecem, e as anteriores aparecem todas e uma única vez.
+// - Os índices por conta e por data são atualizados logo depois da ligação, então uma consulta feita durante
+//   um add pode ver a transação na lista e ainda não no índice (ou o contrário em relação a uma fotografia antiga).
+public class ConcurrentTransactionHistory implements Iterable<TransactionInMemory> {
+
+    private static final class Node {
+        final TransactionInMemory transaction;
+        volatile Node next;
+
+        Node(TransactionInMemory transaction) {
+            this.transaction = transaction;
+        }
+    }
+
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+    private final Node head = new Node(null); // Sentinela: a primeira transação é head.next
+    private final AtomicReference<Node> tail = new AtomicReference<>(head);
+    private final AtomicLong size = new AtomicLong();
+
+    private final ConcurrentMap<Long, Queue<TransactionInMemory>> byAccount = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<LocalDate, Queue<TransactionInMemory>> byDate = new ConcurrentSkipListMap<>();
+
+    public void add(long id, String typeTransaction, double value, LocalDate date, Account originAccount, Account destinationAccount) {
+        TransactionInMemory newTx = new TransactionInMemory(id, typeTransaction, value, date, originAccount, destinationAccount);
+        Node node = new Node(newTx);
+        while (true) {
+            Node last = tail.get();
+            Node next = last.next;
+            if (next == null) {
+                if (NEXT.compareAndSet(last, null, node)) {
+                    tail.compareAndSet(last, node); // Se falhar, outra thread já avançou o tail
+                    break;
+                }
+            } else {
+                tail.compareAndSet(last, next); // Tail atrasado: ajuda a avançar e tenta de novo
+            }
+        }
+        size.incrementAndGet();
+
+        indexByAccount(originAccount, newTx);
+        if (destinationAccount != null && (originAccount == null || !Objects.equals(destinationAccount.getId(), originAccount.getId()))) {
+            indexByAccount(destinationAccount, newTx);
+        }
+        if (date != null) {
+            byDate.computeIfAbsent(date, d -> new ConcurrentLinkedQueue<>()).add(newTx);
+        }
+    }
+
+    // Quantidade de transações já confirmadas por add() (pode estar um pouco atrás de adds em andamento)
+    public long size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    // Fotografia das transações da conta (origem ou destino)
+    public List<TransactionInMemory> findByAccount(long accountId) {
+        Queue<TransactionInMemory> transactions = byAccount.get(accountId);
+        return transactions == null ? List.of() : new ArrayList<>(transactions);
+    }
+
+    // Fotografia das transações com data entre from e to (inclusive), em ordem de data
+    public List<TransactionInMemory> findByDateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return List.of();
+        }
+        List<TransactionInMemory> result = new ArrayList<>();
+        for (Queue<TransactionInMemory> sameDay : byDate.subMap(from, true, to, true).values()) {
+            result.addAll(sameDay);
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<TransactionInMemory> iterator() {
+        Node last = lastLinked();
+        return new Iterator<>() {
+            private Node previous = head;
+
+            @Override
+            public boolean hasNext() {
+                return previous != last;
+            }
+
+            @Override
+            public TransactionInMemory next() {
+                if (previous == last) {
+                    throw new NoSuchElementException();
+                }
+                previous = previous.next; // Não é null: last já estava ligado quando a fotografia foi tirada
+                return previous.transaction;
+            }
+        };
+    }
+
+    // Imprime uma fotografia do histórico com saída bufferizada (ver TransactionHistory.printHistory)
+    public void printHistory() {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024);
+        try {
+            printHistory(out);
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error printing transaction history: " + e.getMessage());
+        }
+    }
+
+    public void printHistory(Writer out) throws IOException {
+        for (TransactionInMemory current : this) {
+            current.writeTo(out);
+        }
+    }
+
+    // O tail pode estar atrasado em relação ao último nó ligado: segue os next até o fim
+    private Node lastLinked() {
+        Node last = tail.get();
+        Node next;
+        while ((next = last.next) != null) {
+            last = next;
+        }
+        return last;
+    }
+
+    private void indexByAccount(Account account, TransactionInMemory tx) {
+        if (account == null || account.getId() == null) {
+            return;
+        }
+        byAccount.computeIfAbsent(account.getId(), id -> new ConcurrentLinkedQueue<>()).add(tx);
+    }
+}
@@ -0,0 +1,32 @@
+package EstruturaDeDadosListaEncadeada;
+
+import java.util.List;
+
+// Uma página do histórico e o token para continuar a leitura depois dela.
+// O token é a posição da próxima transação: como o histórico só cresce, ele continua válido depois de novos add(),
+// e uma página vazia com o mesmo token pode ser pedida de novo mais tarde para ler só o que chegou.
+public final class HistoryPage<T> {
+
+    private final List<T> items;
+    private final long nextToken;
+    private final boolean hasMore;
+
+    HistoryPage(List<T> items, long nextToken, boolean hasMore) {
+        this.items = List.copyOf(items);
+        this.nextToken = nextToken;
+        this.hasMore = hasMore;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public long getNextToken() {
+        return nextToken;
+    }
+
+    // false quando a página chegou ao fim do histórico (no momento da leitura)
+    public boolean hasMore() {
+        return hasMore;
+    }
+}
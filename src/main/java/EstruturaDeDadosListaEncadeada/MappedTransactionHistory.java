@@ -0,0 +1,284 @@
+package EstruturaDeDadosListaEncadeada;
+
+import entities.Account;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Variante do TransactionHistory fora do heap: registros de tamanho fixo em um arquivo mapeado em memória.
+// O histórico sobrevive a reinícios (open() reabre o mesmo arquivo) e não gera pressão de GC:
+// append, acesso por posição e varredura leem/escrevem direto no mapeamento, sem objeto por registro.
+//   cabeçalho (64 bytes): magic | versão | tamanho do registro | quantidade de registros
+//   registro (40 bytes):  id | centavos | conta origem | conta destino | epoch day | código do tipo
+// O arquivo é mapeado em regiões de RECORDS_PER_REGION registros, criadas conforme o histórico cresce.
+// Os tipos (TED, PIX, ...) ficam em um dicionário no arquivo <nome>.types, uma linha por código.
+// Não é thread-safe: quem compartilhar o histórico entre threads deve sincronizar o acesso.
+public class MappedTransactionHistory implements AutoCloseable {
+
+    private static final int MAGIC = 0x494E5448; // "INTH"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int COUNT_OFFSET = 16;
+
+    private static final int RECORD_BYTES = 40;
+    private static final int ID = 0;
+    private static final int CENTS = 8;
+    private static final int ORIGIN = 16;
+    private static final int DESTINATION = 24;
+    private static final int EPOCH_DAY = 32;
+    private static final int TYPE = 36;
+
+    private static final int REGION_BITS = 20;
+    private static final int RECORDS_PER_REGION = 1 << REGION_BITS; // ~40 MiB por região
+    private static final int REGION_MASK = RECORDS_PER_REGION - 1;
+    private static final long NO_ACCOUNT = 0L;
+
+    private final Path path;
+    private final Path typesPath;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+    private int size;
+
+    private final List<String> typeNames = new ArrayList<>();
+    private final Map<String, Short> typeCodeByName = new HashMap<>();
+
+    private MappedTransactionHistory(Path path, FileChannel channel, MappedByteBuffer header) {
+        this.path = path;
+        this.typesPath = path.resolveSibling(path.getFileName() + ".types");
+        this.channel = channel;
+        this.header = header;
+    }
+
+    // Abre o histórico do arquivo (criando se não existir) e continua de onde parou
+    public static MappedTransactionHistory open(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean isNew = channel.size() == 0;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            MappedTransactionHistory history = new MappedTransactionHistory(path, channel, header);
+            if (isNew) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putInt(8, RECORD_BYTES);
+                header.putLong(COUNT_OFFSET, 0);
+            } else {
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_BYTES) {
+                    throw new IOException(path + " is not a transaction history file.");
+                }
+                history.size = Math.toIntExact(header.getLong(COUNT_OFFSET));
+                history.loadTypes();
+            }
+            return history;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public void add(long id, String typeTransaction, double value, LocalDate date, Account originAccount, Account destinationAccount) {
+        long cents = BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_EVEN).movePointRight(2).longValueExact();
+        add(id, typeTransaction, cents, date.toEpochDay(), accountId(originAccount), accountId(destinationAccount));
+    }
+
+    public void add(long id, String typeTransaction, long amountCents, long epochDay, long originAccountId, long destinationAccountId) {
+        short type = typeCode(typeTransaction);
+        MappedByteBuffer region = region(size >>> REGION_BITS);
+        int offset = (size & REGION_MASK) * RECORD_BYTES;
+        region.putLong(offset + ID, id);
+        region.putLong(offset + CENTS, amountCents);
+        region.putLong(offset + ORIGIN, originAccountId);
+        region.putLong(offset + DESTINATION, destinationAccountId);
+        region.putInt(offset + EPOCH_DAY, Math.toIntExact(epochDay));
+        region.putShort(offset + TYPE, type);
+        size++;
+        // A quantidade só muda depois do registro completo: numa queda, no máximo o último registro se perde
+        header.putLong(COUNT_OFFSET, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getId(int row) {
+        return region(checkRow(row)).getLong(offset(row) + ID);
+    }
+
+    public long getAmountCents(int row) {
+        return region(checkRow(row)).getLong(offset(row) + CENTS);
+    }
+
+    public BigDecimal getValue(int row) {
+        return BigDecimal.valueOf(getAmountCents(row), 2);
+    }
+
+    public long getEpochDay(int row) {
+        return region(checkRow(row)).getInt(offset(row) + EPOCH_DAY);
+    }
+
+    public LocalDate getDate(int row) {
+        return LocalDate.ofEpochDay(getEpochDay(row));
+    }
+
+    public long getOriginAccountId(int row) {
+        return region(checkRow(row)).getLong(offset(row) + ORIGIN);
+    }
+
+    public long getDestinationAccountId(int row) {
+        return region(checkRow(row)).getLong(offset(row) + DESTINATION);
+    }
+
+    public String getTypeTransaction(int row) {
+        return typeName(region(checkRow(row)).getShort(offset(row) + TYPE));
+    }
+
+    public void forEach(TransactionRowVisitor visitor) {
+        forEach(0, size, visitor);
+    }
+
+    // Percorre as linhas [fromRow, toRow) em ordem, região a região
+    public void forEach(int fromRow, int toRow, TransactionRowVisitor visitor) {
+        if (fromRow < 0 || toRow > size || fromRow > toRow) {
+            throw new IndexOutOfBoundsException("Invalid row range [" + fromRow + ", " + toRow + ") for history of size " + size);
+        }
+        for (int row = fromRow; row < toRow; row++) {
+            MappedByteBuffer region = region(row >>> REGION_BITS);
+            int offset = offset(row);
+            visitor.visit(row, region.getLong(offset + ID), typeName(region.getShort(offset + TYPE)),
+                    region.getLong(offset + CENTS), region.getInt(offset + EPOCH_DAY),
+                    region.getLong(offset + ORIGIN), region.getLong(offset + DESTINATION));
+        }
+    }
+
+    public void printHistory() {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024);
+        try {
+            printHistory(out);
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error printing transaction history: " + e.getMessage());
+        }
+    }
+
+    public void printHistory(Writer out) throws IOException {
+        for (int row = 0; row < size; row++) {
+            out.append("- ID: ").append(Long.toString(getId(row)))
+                    .append(" | Tipo: ").append(getTypeTransaction(row))
+                    .append(" | Valor: R$ ").append(String.format("%.2f", getValue(row)))
+                    .append(" | Data: ").append(getDate(row).toString())
+                    .append(" | Origem: conta #").append(Long.toString(getOriginAccountId(row)))
+                    .append(" | Destino: conta #").append(Long.toString(getDestinationAccountId(row)))
+                    .append('\n');
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Grava no disco o que ainda só está no mapeamento (sem isto o sistema operacional grava quando quiser)
+    public void force() {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+        header.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private MappedByteBuffer region(int index) {
+        while (regions.size() <= index) {
+            long start = HEADER_BYTES + (long) regions.size() * RECORDS_PER_REGION * RECORD_BYTES;
+            try {
+                // Mapear além do fim aumenta o arquivo até o tamanho da região
+                regions.add(channel.map(FileChannel.MapMode.READ_WRITE, start, (long) RECORDS_PER_REGION * RECORD_BYTES));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map history region " + regions.size() + " of " + path, e);
+            }
+        }
+        return regions.get(index);
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for history of size " + size);
+        }
+        return row >>> REGION_BITS;
+    }
+
+    private static int offset(int row) {
+        return (row & REGION_MASK) * RECORD_BYTES;
+    }
+
+    private String typeName(short code) {
+        return code < 0 ? null : typeNames.get(code);
+    }
+
+    // Um tipo novo vai para o arquivo .types antes de qualquer registro usar o código dele
+    private short typeCode(String typeTransaction) {
+        if (typeTransaction == null) {
+            return -1;
+        }
+        Short code = typeCodeByName.get(typeTransaction);
+        if (code != null) {
+            return code;
+        }
+        if (typeNames.size() > Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct transaction types for the history dictionary.");
+        }
+        if (typeTransaction.contains("\n")) {
+            throw new IllegalArgumentException("Transaction type can't contain line breaks.");
+        }
+        try {
+            Files.writeString(typesPath, typeTransaction + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write history type dictionary " + typesPath, e);
+        }
+        code = (short) typeNames.size();
+        typeNames.add(typeTransaction);
+        typeCodeByName.put(typeTransaction, code);
+        return code;
+    }
+
+    private void loadTypes() throws IOException {
+        if (!Files.exists(typesPath)) {
+            return;
+        }
+        for (String type : Files.readAllLines(typesPath, StandardCharsets.UTF_8)) {
+            typeCodeByName.put(type, (short) typeNames.size());
+            typeNames.add(type);
+        }
+    }
+
+    private static long accountId(Account account) {
+        return account == null || account.getId() == null ? NO_ACCOUNT : account.getId();
+    }
+}
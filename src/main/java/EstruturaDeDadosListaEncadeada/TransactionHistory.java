@@ -2,33 +2,162 @@ package EstruturaDeDadosListaEncadeada;
 
 import entities.Account;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.TreeMap;
+
+// Histórico de transações em memória.
+// - add() é O(1): a lista encadeada guarda também o último nó (tail), então não percorre a lista a cada inserção.
+// - Índices secundários: por conta (origem ou destino, pelo id) e por data (TreeMap, para consultas por intervalo).
+// - A iteração percorre a lista uma única vez, na ordem de inserção.
+// - page(): leitura em páginas com token de continuação. A cada CHECKPOINT_INTERVAL nós o histórico guarda
+//   um atalho, então retomar de um token anda no máximo CHECKPOINT_INTERVAL - 1 nós até o início da página.
+// Não é thread-safe: quem compartilhar o histórico entre threads deve sincronizar o acesso.
+public class TransactionHistory implements Iterable<TransactionInMemory> {
+    private static final int CHECKPOINT_BITS = 10;
+    private static final int CHECKPOINT_INTERVAL = 1 << CHECKPOINT_BITS;
+    private static final int CHECKPOINT_MASK = CHECKPOINT_INTERVAL - 1;
 
-public class TransactionHistory {
     private TransactionInMemory head;
+    private TransactionInMemory tail;
+    private int size;
+    private final List<TransactionInMemory> checkpoints = new ArrayList<>(); // Nó da posição i * CHECKPOINT_INTERVAL
+
+    private final Map<Long, List<TransactionInMemory>> byAccount = new HashMap<>();
+    private final NavigableMap<LocalDate, List<TransactionInMemory>> byDate = new TreeMap<>();
 
     public void add(long id, String typeTransaction, double value, LocalDate date, Account originAccount, Account destinationAccount) {
         TransactionInMemory newTx = new TransactionInMemory(id, typeTransaction, value, date, originAccount, destinationAccount);
         if (head == null) {
             head = newTx;
         } else {
-            TransactionInMemory current = head;
-            while (current.next != null) {
+            tail.next = newTx;
+        }
+        tail = newTx;
+        if ((size & CHECKPOINT_MASK) == 0) {
+            checkpoints.add(newTx);
+        }
+        size++;
+
+        indexByAccount(originAccount, newTx);
+        if (destinationAccount != null && (originAccount == null || !Objects.equals(destinationAccount.getId(), originAccount.getId()))) {
+            indexByAccount(destinationAccount, newTx);
+        }
+        if (date != null) {
+            byDate.computeIfAbsent(date, d -> new ArrayList<>()).add(newTx);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Transações em que a conta é origem ou destino, na ordem de inserção
+    public List<TransactionInMemory> findByAccount(long accountId) {
+        return Collections.unmodifiableList(byAccount.getOrDefault(accountId, List.of()));
+    }
+
+    // Transações com data entre from e to (inclusive), em ordem de data
+    public List<TransactionInMemory> findByDateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return List.of();
+        }
+        List<TransactionInMemory> result = new ArrayList<>();
+        for (List<TransactionInMemory> sameDay : byDate.subMap(from, true, to, true).values()) {
+            result.addAll(sameDay);
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<TransactionInMemory> iterator() {
+        return new Iterator<>() {
+            private TransactionInMemory current = head;
+
+            @Override
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            @Override
+            public TransactionInMemory next() {
+                if (current == null) {
+                    throw new NoSuchElementException();
+                }
+                TransactionInMemory result = current;
                 current = current.next;
+                return result;
             }
-            current.next = newTx;
+        };
+    }
+
+    // Até pageSize transações a partir do token (0 para começar do início)
+    public HistoryPage<TransactionInMemory> page(long token, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive.");
         }
+        if (token < 0 || token > size) {
+            throw new IllegalArgumentException("Invalid history token: " + token);
+        }
+        List<TransactionInMemory> items = new ArrayList<>((int) Math.min(pageSize, size - token));
+        TransactionInMemory current = nodeAt((int) token);
+        long position = token;
+        while (current != null && items.size() < pageSize) {
+            items.add(current);
+            current = current.next;
+            position++;
+        }
+        return new HistoryPage<>(items, position, current != null);
     }
 
+    // Saída bufferizada: as linhas vão para o buffer conforme a lista é percorrida e o console recebe blocos grandes
     public void printHistory() {
-        TransactionInMemory current = head;
-        while (current != null) {
-            System.out.printf("- ID: %d | Tipo: %s | Valor: R$ %.2f | Data: %s | Origem: %s | Destino: %s\n",
-                    current.id, current.typeTransaction, current.value,
-                    current.date, current.originAccount, current.destinationAccount);
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024);
+        try {
+            printHistory(out);
+            out.flush(); // Sem close(): fecharia o System.out
+        } catch (IOException e) {
+            System.err.println("Error printing transaction history: " + e.getMessage());
+        }
+    }
 
+    public void printHistory(Writer out) throws IOException {
+        for (TransactionInMemory current = head; current != null; current = current.next) {
+            current.writeTo(out);
+        }
+    }
+
+    private TransactionInMemory nodeAt(int position) {
+        if (position == size) {
+            return null;
+        }
+        TransactionInMemory current = checkpoints.get(position >>> CHECKPOINT_BITS);
+        for (int i = position & CHECKPOINT_MASK; i > 0; i--) {
             current = current.next;
         }
+        return current;
     }
-}
 
+    private void indexByAccount(Account account, TransactionInMemory tx) {
+        if (account == null || account.getId() == null) {
+            return;
+        }
+        byAccount.computeIfAbsent(account.getId(), id -> new ArrayList<>()).add(tx);
+    }
+}
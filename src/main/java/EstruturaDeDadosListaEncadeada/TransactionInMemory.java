@@ -2,6 +2,7 @@ package EstruturaDeDadosListaEncadeada;
 
 import entities.Account;
 
+import java.io.IOException;
 import java.time.LocalDate;
 
 public class TransactionInMemory {
@@ -22,7 +23,40 @@ public class TransactionInMemory {
         this.originAccount = originAccount;
         this.destinationAccount = destinationAccount;
     }
-}
 
+    // Getters para quem lê o histórico fora do pacote (os campos continuam restritos ao pacote)
+    public Long getId() {
+        return id;
+    }
+
+    public String getTypeTransaction() {
+        return typeTransaction;
+    }
 
+    public double getValue() {
+        return value;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
 
+    public Account getOriginAccount() {
+        return originAccount;
+    }
+
+    public Account getDestinationAccount() {
+        return destinationAccount;
+    }
+
+    // Escreve a linha do histórico direto no destino (sem montar a String inteira antes, como o printf fazia)
+    public void writeTo(Appendable out) throws IOException {
+        out.append("- ID: ").append(String.valueOf(id))
+                .append(" | Tipo: ").append(typeTransaction)
+                .append(" | Valor: R$ ").append(String.format("%.2f", value)) // Formato e locale do printf original (%.2f)
+                .append(" | Data: ").append(String.valueOf(date))
+                .append(" | Origem: ").append(String.valueOf(originAccount))
+                .append(" | Destino: ").append(String.valueOf(destinationAccount))
+                .append('\n');
+    }
+}
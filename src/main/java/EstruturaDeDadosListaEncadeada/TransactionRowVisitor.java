@@ -0,0 +1,8 @@
+package EstruturaDeDadosListaEncadeada;
+
+// Recebe os campos de uma linha do histórico como primitivos, sem criar um objeto por transação.
+// Usado pelas variantes colunar e mapeada em arquivo.
+@FunctionalInterface
+public interface TransactionRowVisitor {
+    void visit(int row, long id, String typeTransaction, long amountCents, long epochDay, long originAccountId, long destinationAccountId);
+}
@@ -1,20 +1,31 @@
+import interfaces.IPixGateway;
+import ledger.Journal;
+import ledger.LedgerEngine;
+import ledger.LedgerPersister;
 import repository.AccountRepository;
 import repository.CardRepository;
 import repository.ClientRepository;
 import repository.CurrentAccountRepository;
+import repository.IdempotencyRepository;
 import repository.PixKeyRepository;
 import repository.PixTransactionRepository;
 import repository.SavingsAccountRepository;
 import repository.TransactionRepository;
+import repository.TransferEngine;
 
 import services.AccountService;
 import services.CardService;
 import services.ClientService;
 import services.CurrentAccountService;
+import services.IdempotencyService;
+import services.InterestAccrualJob;
 import services.PixKeyService;
 import services.PixTransactionService;
 import services.SavingsAccountService;
 import services.TransactionService;
+import settlement.LocalPixGateway;
+import settlement.PixSettlementPipeline;
+import settlement.SimulatedPixGateway;
 
 import util.JPAUtil;
 import view.InteractiveView;
@@ -29,6 +40,9 @@ import view.ViewClient;
 // import view.ViewSavingsAccount;
 // import view.ViewTransaction;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Scanner;
 
 public class Main {
@@ -70,14 +84,20 @@ public class Main {
         }
 
         // --- Inicialização dos Repositórios ---
+        // Motor compartilhado por todas as operações que movem saldo (locks em ordem de id + repetição)
+        TransferEngine transferEngine = new TransferEngine();
         AccountRepository accountRepository = new AccountRepository();
         CardRepository cardRepository = new CardRepository();
         ClientRepository clientRepository = new ClientRepository();
-        TransactionRepository transactionRepository = new TransactionRepository();
+        TransactionRepository transactionRepository = new TransactionRepository(transferEngine);
         CurrentAccountRepository currentAccountRepository = new CurrentAccountRepository();
         SavingsAccountRepository savingsAccountRepository = new SavingsAccountRepository();
         PixKeyRepository pixKeyRepository = new PixKeyRepository();
-        PixTransactionRepository pixTransactionRepository = new PixTransactionRepository();
+        PixTransactionRepository pixTransactionRepository = new PixTransactionRepository(transferEngine);
+        IdempotencyRepository idempotencyRepository = new IdempotencyRepository();
+        // Filtro de Bloom das chaves Pix: buscas por chaves externas não vão ao banco
+        pixKeyRepository.rebuildKeyFilter();
+        System.out.println("Pix key filter: " + pixKeyRepository.getKeyFilterReport());
 
         // --- Inicialização dos Serviços ---
         // Passando as dependências corretas para cada construtor
@@ -85,15 +105,76 @@ public class Main {
         ClientService clientService = new ClientService(clientRepository); // Depende apenas do repositório
         // CardService agora precisa de AccountService
         CardService cardService = new CardService(cardRepository, accountService);
-        TransactionService transactionService = new TransactionService(transactionRepository);
+        // Ledger em memória (opcional): ligado com -Dinovabank.ledger.enabled=true
+        LedgerEngine ledgerEngine = null;
+        // O journal fica em -Dinovabank.ledger.journal.dir (padrão: ledger-journal) e é reaplicado na inicialização
+        if (Boolean.getBoolean("inovabank.ledger.enabled")) {
+            try {
+                Journal journal = Journal.open(Path.of(System.getProperty("inovabank.ledger.journal.dir", "ledger-journal")),
+                        64 * 1024 * 1024, 2, 256);
+                ledgerEngine = new LedgerEngine(8192, new LedgerPersister(500, 50), journal);
+                ledgerEngine.load(accountRepository.getAll());
+                long replayed = ledgerEngine.replayJournal();
+                if (replayed > 0) {
+                    System.out.println("Ledger journal: " + replayed + " transfers recovered.");
+                }
+                ledgerEngine.start();
+            } catch (IOException e) {
+                System.out.println("Could not open ledger journal, ledger disabled: " + e.getMessage());
+                ledgerEngine = null;
+            }
+        }
+        // Chaves de idempotência das transferências e do Pix, guardadas por -Dinovabank.idempotency.retentionHours (padrão 24)
+        IdempotencyService idempotencyService = new IdempotencyService(idempotencyRepository, transferEngine,
+                Duration.ofHours(Long.getLong("inovabank.idempotency.retentionHours", IdempotencyService.DEFAULT_RETENTION.toHours())));
+        int purgedKeys = idempotencyService.purgeExpired();
+        if (purgedKeys > 0) {
+            System.out.println("Idempotency keys: " + purgedKeys + " expired keys removed.");
+        }
+        TransactionService transactionService = new TransactionService(transactionRepository, ledgerEngine, idempotencyService);
         // CurrentAccountService agora precisa de ClientService e SavingsAccountRepository
-        CurrentAccountService currentAccountService = new CurrentAccountService(currentAccountRepository, clientService, savingsAccountRepository);
+        CurrentAccountService currentAccountService = new CurrentAccountService(currentAccountRepository, clientService, savingsAccountRepository, transferEngine, ledgerEngine);
         // SavingsAccountService agora precisa de ClientService e CurrentAccountRepository
-        SavingsAccountService savingsAccountService = new SavingsAccountService(savingsAccountRepository, clientService, currentAccountRepository);
+        // Fechamento de juros em blocos paralelos: -Dinovabank.interest.chunkSize, -Dinovabank.interest.parallelism
+        // e -Dinovabank.interest.mode (ENTITY ou BULK)
+        InterestAccrualJob interestAccrualJob = new InterestAccrualJob(savingsAccountRepository, transferEngine,
+                Integer.getInteger("inovabank.interest.chunkSize", InterestAccrualJob.DEFAULT_CHUNK_SIZE),
+                Integer.getInteger("inovabank.interest.parallelism", InterestAccrualJob.DEFAULT_PARALLELISM),
+                InterestAccrualJob.Mode.valueOf(System.getProperty("inovabank.interest.mode", InterestAccrualJob.Mode.ENTITY.name())),
+                ledgerEngine);
+        SavingsAccountService savingsAccountService = new SavingsAccountService(savingsAccountRepository, clientService, currentAccountRepository, transferEngine, interestAccrualJob, ledgerEngine);
         // PixKeyService agora precisa de AccountService
         PixKeyService pixKeyService = new PixKeyService(pixKeyRepository, accountService);
         // PixTransactionService agora precisa de AccountService e PixKeyService
-        PixTransactionService pixTransactionService = new PixTransactionService(pixTransactionRepository, accountService, pixKeyService);
+        // Pix para outros bancos: reserva no pedido e liquidação em segundo plano pelo gateway
+        // (desligue com -Dinovabank.pix.settlement.enabled=false para liquidar na hora, como antes).
+        // Sem integração com o SPI, o LocalPixGateway aceita tudo após -Dinovabank.pix.gateway.latencyMillis (padrão 0).
+        // Para medir vazão e cauda: -Dinovabank.pix.gateway.latency=lognormal:20/200 (ou fixed:<ms>, uniform:<min>-<max>)
+        // liga o SimulatedPixGateway, com -Dinovabank.pix.gateway.timeoutMillis, .errorRate, .rejectRate e .maxPerSecond.
+        // Com o ledger ligado o pipeline fica desligado: o Pix passa pelo ledger e o estorno das recusas (markFailed)
+        // creditaria direto no banco. Liquidações PENDING de execuções anteriores esperam o ledger ser desligado.
+        PixSettlementPipeline pixSettlementPipeline = null;
+        SimulatedPixGateway simulatedPixGateway = null;
+        if (ledgerEngine != null) {
+            System.out.println("Pix settlement pipeline disabled while the in-memory ledger is enabled.");
+        } else if (!"false".equalsIgnoreCase(System.getProperty("inovabank.pix.settlement.enabled"))) {
+            IPixGateway pixGateway;
+            String simulatedLatency = System.getProperty("inovabank.pix.gateway.latency");
+            if (simulatedLatency != null) {
+                simulatedPixGateway = new SimulatedPixGateway(SimulatedPixGateway.Latency.parse(simulatedLatency),
+                        Long.getLong("inovabank.pix.gateway.timeoutMillis", SimulatedPixGateway.DEFAULT_TIMEOUT_MILLIS),
+                        Double.parseDouble(System.getProperty("inovabank.pix.gateway.errorRate", "0")),
+                        Double.parseDouble(System.getProperty("inovabank.pix.gateway.rejectRate", "0")),
+                        Integer.getInteger("inovabank.pix.gateway.maxPerSecond", 0));
+                pixGateway = simulatedPixGateway;
+            } else {
+                pixGateway = new LocalPixGateway(Long.getLong("inovabank.pix.gateway.latencyMillis", 0));
+            }
+            pixSettlementPipeline = new PixSettlementPipeline(pixTransactionRepository, pixGateway, transferEngine);
+            pixSettlementPipeline.start();
+        }
+        PixTransactionService pixTransactionService = new PixTransactionService(pixTransactionRepository, accountService, pixKeyService,
+                transferEngine, ledgerEngine, idempotencyService, pixSettlementPipeline);
 
         ViewClient viewClient = new ViewClient(clientService);
 
@@ -116,6 +197,20 @@ public class Main {
         // Iniciar a aplicação
         interactiveView.startApplication();
 
+        // Os status já respondidos pelo gateway são gravados; o que não terminou fica PENDING para a próxima inicialização
+        if (pixSettlementPipeline != null) {
+            pixSettlementPipeline.stop();
+            System.out.println(pixSettlementPipeline.getReport());
+        }
+        if (simulatedPixGateway != null) {
+            System.out.println(simulatedPixGateway.getReport());
+        }
+
+        // O ledger grava o que ainda estiver pendente antes de o banco ser fechado
+        if (ledgerEngine != null) {
+            ledgerEngine.stop();
+        }
+
         // Fechar o EntityManagerFactory quando a aplicação encerrar
         // Verifique se o método closeEntityManagerFactory() existe em JPAUtil
         // Se não existir, adicione-o em JPAUtil
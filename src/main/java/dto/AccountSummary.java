@@ -0,0 +1,83 @@
+package dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Linha das listagens de contas, montada direto pela consulta (SELECT new dto.AccountSummary(...)):
+// só as colunas exibidas, sem carregar Client, a lista de contas do cliente nem as chaves Pix.
+// interestRate e latestInterestUpdate só são preenchidos para poupança.
+public class AccountSummary {
+
+    public static final String CURRENT = "CURRENT";
+    public static final String SAVINGS = "SAVINGS";
+
+    private final Long id;
+    private final String accountNumber;
+    private final String accountType;
+    private final BigDecimal balance;
+    private final String clientName;
+    private final String clientCpf;
+    private final BigDecimal interestRate;
+    private final LocalDate latestInterestUpdate;
+
+    public AccountSummary(Long id, String accountNumber, String accountType, BigDecimal balance,
+                          String clientName, String clientCpf) {
+        this(id, accountNumber, accountType, balance, clientName, clientCpf, null, null);
+    }
+
+    public AccountSummary(Long id, String accountNumber, String accountType, BigDecimal balance,
+                          String clientName, String clientCpf, BigDecimal interestRate, LocalDate latestInterestUpdate) {
+        this.id = id;
+        this.accountNumber = accountNumber;
+        this.accountType = accountType;
+        this.balance = balance;
+        this.clientName = clientName;
+        this.clientCpf = clientCpf;
+        this.interestRate = interestRate;
+        this.latestInterestUpdate = latestInterestUpdate;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public String getAccountType() {
+        return accountType;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public String getClientCpf() {
+        return clientCpf;
+    }
+
+    public BigDecimal getInterestRate() {
+        return interestRate;
+    }
+
+    public LocalDate getLatestInterestUpdate() {
+        return latestInterestUpdate;
+    }
+
+    @Override
+    public String toString() {
+        return "Account{" +
+                "id=" + id +
+                ", type=" + accountType +
+                ", accountNumber='" + accountNumber + '\'' +
+                ", balance=" + balance +
+                ", client=" + clientName + " (" + clientCpf + ")" +
+                (SAVINGS.equals(accountType) ? ", interestRate=" + interestRate + ", latestInterestUpdate=" + latestInterestUpdate : "") +
+                '}';
+    }
+}
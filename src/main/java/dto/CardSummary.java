@@ -0,0 +1,61 @@
+package dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Linha da listagem de cartões, montada direto pela consulta: só as colunas exibidas
+// (sem o CVV e sem carregar a conta inteira, apenas o número dela).
+public class CardSummary {
+
+    private final Long id;
+    private final String cardNumber;
+    private final LocalDate validity;
+    private final String cardType;
+    private final BigDecimal creditLimit;
+    private final String accountNumber;
+
+    public CardSummary(Long id, String cardNumber, LocalDate validity, String cardType, BigDecimal creditLimit, String accountNumber) {
+        this.id = id;
+        this.cardNumber = cardNumber;
+        this.validity = validity;
+        this.cardType = cardType;
+        this.creditLimit = creditLimit;
+        this.accountNumber = accountNumber;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCardNumber() {
+        return cardNumber;
+    }
+
+    public LocalDate getValidity() {
+        return validity;
+    }
+
+    public String getCardType() {
+        return cardType;
+    }
+
+    public BigDecimal getCreditLimit() {
+        return creditLimit;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    @Override
+    public String toString() {
+        return "Card{" +
+                "id=" + id +
+                ", cardNumber='" + cardNumber + '\'' +
+                ", validity=" + validity +
+                ", cardType='" + cardType + '\'' +
+                ", creditLimit=" + creditLimit +
+                ", account=" + accountNumber +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package dto;
+
+import entities.IdempotencyRecord;
+
+import java.time.LocalDateTime;
+
+// Resposta de uma operação feita com chave de idempotência.
+// replayed == true: o pedido já tinha sido atendido e nada foi executado de novo; os dados são os da primeira vez.
+public class IdempotentResult {
+
+    private final String key;
+    private final String operation;
+    private final Long resultId;
+    private final LocalDateTime createdAt;
+    private final boolean replayed;
+
+    private IdempotentResult(String key, String operation, Long resultId, LocalDateTime createdAt, boolean replayed) {
+        this.key = key;
+        this.operation = operation;
+        this.resultId = resultId;
+        this.createdAt = createdAt;
+        this.replayed = replayed;
+    }
+
+    public static IdempotentResult executed(IdempotencyRecord record) {
+        return new IdempotentResult(record.getKey(), record.getOperation(), record.getResultId(), record.getCreatedAt(), false);
+    }
+
+    public static IdempotentResult replayed(IdempotencyRecord record) {
+        return new IdempotentResult(record.getKey(), record.getOperation(), record.getResultId(), record.getCreatedAt(), true);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    // Id da Transaction ou PixTransaction criada; null se o registro é gravado depois pelo ledger
+    public Long getResultId() {
+        return resultId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public boolean isReplayed() {
+        return replayed;
+    }
+
+    @Override
+    public String toString() {
+        return "IdempotentResult{" +
+                "key='" + key + '\'' +
+                ", operation='" + operation + '\'' +
+                ", resultId=" + resultId +
+                ", createdAt=" + createdAt +
+                ", replayed=" + replayed +
+                '}';
+    }
+}
@@ -0,0 +1,91 @@
+package dto;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+// Resultado do fechamento de juros de um período (ou de um bloco dele; os blocos são somados com plus).
+// scanned: poupanças encontradas nas faixas de id processadas; accrued: as que receberam juros agora;
+// skipped: já tinham juros no período (latestInterestUpdate) ou não têm taxa.
+public class InterestAccrualResult {
+
+    private final YearMonth period;
+    private final long scanned;
+    private final long accrued;
+    private final int failedChunks;
+    private final BigDecimal totalInterest;
+    private final long elapsedMillis;
+
+    public InterestAccrualResult(YearMonth period, long scanned, long accrued, int failedChunks,
+                                 BigDecimal totalInterest, long elapsedMillis) {
+        this.period = period;
+        this.scanned = scanned;
+        this.accrued = accrued;
+        this.failedChunks = failedChunks;
+        this.totalInterest = totalInterest;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public static InterestAccrualResult empty(YearMonth period) {
+        return new InterestAccrualResult(period, 0, 0, 0, BigDecimal.ZERO, 0);
+    }
+
+    public static InterestAccrualResult failedChunk(YearMonth period) {
+        return new InterestAccrualResult(period, 0, 0, 1, BigDecimal.ZERO, 0);
+    }
+
+    public InterestAccrualResult plus(InterestAccrualResult other) {
+        return new InterestAccrualResult(period, scanned + other.scanned, accrued + other.accrued,
+                failedChunks + other.failedChunks, totalInterest.add(other.totalInterest), elapsedMillis + other.elapsedMillis);
+    }
+
+    public InterestAccrualResult withElapsedMillis(long elapsedMillis) {
+        return new InterestAccrualResult(period, scanned, accrued, failedChunks, totalInterest, elapsedMillis);
+    }
+
+    public YearMonth getPeriod() {
+        return period;
+    }
+
+    public long getScanned() {
+        return scanned;
+    }
+
+    public long getAccrued() {
+        return accrued;
+    }
+
+    public long getSkipped() {
+        return scanned - accrued;
+    }
+
+    // Blocos que falharam mesmo depois das repetições: rodar o fechamento de novo processa só o que faltou
+    public int getFailedChunks() {
+        return failedChunks;
+    }
+
+    public BigDecimal getTotalInterest() {
+        return totalInterest;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getAccountsPerSecond() {
+        return elapsedMillis == 0 ? 0 : scanned * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "InterestAccrualResult{" +
+                "period=" + period +
+                ", scanned=" + scanned +
+                ", accrued=" + accrued +
+                ", skipped=" + getSkipped() +
+                ", failedChunks=" + failedChunks +
+                ", totalInterest=" + totalInterest +
+                ", elapsedMillis=" + elapsedMillis +
+                ", accountsPerSecond=" + String.format("%.0f", getAccountsPerSecond()) +
+                '}';
+    }
+}
@@ -0,0 +1,38 @@
+package dto;
+
+// Resposta definitiva do gateway para uma liquidação: aceita (o dinheiro saiu) ou recusada (reason diz o motivo).
+// Quando o gateway não sabe responder (timeout, indisponível) ele lança exceção e a liquidação é tentada de novo.
+public class PixGatewayResult {
+
+    private final boolean accepted;
+    private final String reason;
+
+    private PixGatewayResult(boolean accepted, String reason) {
+        this.accepted = accepted;
+        this.reason = reason;
+    }
+
+    public static PixGatewayResult accepted() {
+        return new PixGatewayResult(true, null);
+    }
+
+    public static PixGatewayResult rejected(String reason) {
+        return new PixGatewayResult(false, reason);
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return "PixGatewayResult{" +
+                "accepted=" + accepted +
+                (reason != null ? ", reason='" + reason + '\'' : "") +
+                '}';
+    }
+}
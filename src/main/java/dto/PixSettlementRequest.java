@@ -0,0 +1,73 @@
+package dto;
+
+import entities.PixKey;
+import entities.PixTransaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// O que o gateway externo precisa para liquidar um Pix reservado: montado da PixTransaction recém-reservada
+// ou direto pela consulta das pendentes (SELECT new dto.PixSettlementRequest(...)), sem carregar a entidade.
+// pixTransactionId identifica a liquidação de ponta a ponta: o gateway deve tratar reenvios do mesmo id como um só.
+public class PixSettlementRequest {
+
+    private final Long pixTransactionId;
+    private final String originAccountNumber;
+    private final String pixKeyUsed;
+    private final PixKey.PixKeyType keyTypeUsed;
+    private final BigDecimal value;
+    private final LocalDateTime acceptedAt;
+
+    public PixSettlementRequest(Long pixTransactionId, String originAccountNumber, String pixKeyUsed,
+                                PixKey.PixKeyType keyTypeUsed, BigDecimal value, LocalDateTime acceptedAt) {
+        this.pixTransactionId = pixTransactionId;
+        this.originAccountNumber = originAccountNumber;
+        this.pixKeyUsed = pixKeyUsed;
+        this.keyTypeUsed = keyTypeUsed;
+        this.value = value;
+        this.acceptedAt = acceptedAt;
+    }
+
+    // A conta de origem precisa estar carregada (é o caso logo depois da reserva)
+    public static PixSettlementRequest of(PixTransaction pixTransaction) {
+        return new PixSettlementRequest(pixTransaction.getId(), pixTransaction.getOriginAccount().getAccountNumber(),
+                pixTransaction.getPixKeyUsed(), pixTransaction.getKeyTypeUsed(), pixTransaction.getValue(),
+                pixTransaction.getDateTime());
+    }
+
+    public Long getPixTransactionId() {
+        return pixTransactionId;
+    }
+
+    public String getOriginAccountNumber() {
+        return originAccountNumber;
+    }
+
+    public String getPixKeyUsed() {
+        return pixKeyUsed;
+    }
+
+    public PixKey.PixKeyType getKeyTypeUsed() {
+        return keyTypeUsed;
+    }
+
+    public BigDecimal getValue() {
+        return value;
+    }
+
+    public LocalDateTime getAcceptedAt() {
+        return acceptedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PixSettlementRequest{" +
+                "pixTransactionId=" + pixTransactionId +
+                ", originAccountNumber='" + originAccountNumber + '\'' +
+                ", pixKeyUsed='" + pixKeyUsed + '\'' +
+                ", keyTypeUsed=" + keyTypeUsed +
+                ", value=" + value +
+                ", acceptedAt=" + acceptedAt +
+                '}';
+    }
+}
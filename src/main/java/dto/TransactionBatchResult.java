@@ -0,0 +1,53 @@
+package dto;
+
+import entities.Transaction;
+
+// Resultado de um item de createBatch: a posição na lista enviada, a transação
+// (a instância gravada quando deu certo) e o motivo da recusa quando falhou.
+public class TransactionBatchResult {
+
+    private final int index;
+    private final Transaction transaction;
+    private final boolean success;
+    private final String message;
+
+    private TransactionBatchResult(int index, Transaction transaction, boolean success, String message) {
+        this.index = index;
+        this.transaction = transaction;
+        this.success = success;
+        this.message = message;
+    }
+
+    public static TransactionBatchResult ok(int index, Transaction transaction) {
+        return new TransactionBatchResult(index, transaction, true, null);
+    }
+
+    public static TransactionBatchResult failed(int index, Transaction transaction, String message) {
+        return new TransactionBatchResult(index, transaction, false, message);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionBatchResult{" +
+                "index=" + index +
+                ", success=" + success +
+                (message != null ? ", message='" + message + '\'' : "") +
+                '}';
+    }
+}
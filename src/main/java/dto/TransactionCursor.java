@@ -0,0 +1,68 @@
+package dto;
+
+import entities.Transaction;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+
+// Posição (date, id) da última transação lida: a próxima página começa logo depois dela.
+// Como não é um deslocamento (OFFSET), o custo de uma página não cresce com a posição na tabela
+// e transações inseridas no meio da leitura não fazem linhas repetirem ou sumirem.
+public class TransactionCursor {
+
+    private final LocalDate date;
+    private final long id;
+
+    public TransactionCursor(LocalDate date, long id) {
+        this.date = Objects.requireNonNull(date, "date");
+        this.id = id;
+    }
+
+    public static TransactionCursor after(Transaction transaction) {
+        return new TransactionCursor(transaction.getDate(), transaction.getId());
+    }
+
+    // Token de texto para quem precisa guardar a posição (ex: exportação retomada depois): "2024-01-31:1234"
+    public static TransactionCursor parse(String token) {
+        int separator = token == null ? -1 : token.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid transaction cursor: " + token);
+        }
+        try {
+            return new TransactionCursor(LocalDate.parse(token.substring(0, separator)), Long.parseLong(token.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid transaction cursor: " + token, e);
+        }
+    }
+
+    public String toToken() {
+        return date + ":" + id;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TransactionCursor that = (TransactionCursor) o;
+        return id == that.id && date.equals(that.date);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(date, id);
+    }
+
+    @Override
+    public String toString() {
+        return toToken();
+    }
+}
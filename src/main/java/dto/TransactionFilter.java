@@ -0,0 +1,52 @@
+package dto;
+
+import java.time.LocalDate;
+
+// Filtros das consultas paginadas de transações. Campos null não filtram:
+// accountId casa com a conta de origem OU de destino; from/to são inclusivos.
+public class TransactionFilter {
+
+    private static final TransactionFilter NONE = new TransactionFilter(null, null, null);
+
+    private final Long accountId;
+    private final LocalDate from;
+    private final LocalDate to;
+
+    public TransactionFilter(Long accountId, LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date.");
+        }
+        this.accountId = accountId;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static TransactionFilter none() {
+        return NONE;
+    }
+
+    public static TransactionFilter forAccount(long accountId) {
+        return new TransactionFilter(accountId, null, null);
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionFilter{" +
+                "accountId=" + accountId +
+                ", from=" + from +
+                ", to=" + to +
+                '}';
+    }
+}
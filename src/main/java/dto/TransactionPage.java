@@ -0,0 +1,32 @@
+package dto;
+
+import java.util.List;
+
+// Uma página de transações em ordem de (date, id) e o cursor para pedir a próxima (null na última página).
+// T é a entidade Transaction ou a projeção TransactionSummary.
+public class TransactionPage<T> {
+
+    private final List<T> items;
+    private final TransactionCursor nextCursor;
+
+    public TransactionPage(List<T> items, TransactionCursor nextCursor) {
+        this.items = List.copyOf(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public static <T> TransactionPage<T> empty() {
+        return new TransactionPage<>(List.of(), null);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public TransactionCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,63 @@
+package dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Linha da listagem de transações, montada direto pela consulta: os números das contas vêm do JOIN,
+// sem carregar as duas Account (e o Client de cada uma) por transação.
+public class TransactionSummary {
+
+    private final Long id;
+    private final String typeTransaction;
+    private final BigDecimal value;
+    private final LocalDate date;
+    private final String originAccountNumber;
+    private final String destinationAccountNumber;
+
+    public TransactionSummary(Long id, String typeTransaction, BigDecimal value, LocalDate date,
+                              String originAccountNumber, String destinationAccountNumber) {
+        this.id = id;
+        this.typeTransaction = typeTransaction;
+        this.value = value;
+        this.date = date;
+        this.originAccountNumber = originAccountNumber;
+        this.destinationAccountNumber = destinationAccountNumber;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTypeTransaction() {
+        return typeTransaction;
+    }
+
+    public BigDecimal getValue() {
+        return value;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public String getOriginAccountNumber() {
+        return originAccountNumber;
+    }
+
+    public String getDestinationAccountNumber() {
+        return destinationAccountNumber;
+    }
+
+    // Mesmo formato do Transaction.toString()
+    @Override
+    public String toString() {
+        return "Transaction{" +
+                "id=" + id +
+                ", typeTransaction='" + typeTransaction + '\'' +
+                ", value=" + value +
+                ", date=" + date +
+                ", originAccount=" + originAccountNumber +
+                ", destinationAccount=" + destinationAccountNumber +
+                '}';
+    }
+}
@@ -9,10 +9,17 @@ import java.util.Set;
 
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
+// Plano de carga para quem exibe a conta com o cliente (ver toString)
+@NamedEntityGraph(name = Account.WITH_CLIENT, attributeNodes = @NamedAttributeNode("client"))
 public abstract class Account { // CONTINUA SENDO ABSTRATA, CORRETO
 
+    public static final String WITH_CLIENT = "Account.withClient";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequência com alocação em blocos (pooled): 1 ida ao banco a cada 50 ids, o que permite batch de INSERT.
+    // No MySQL o Hibernate emula a sequência com a tabela account_seq; no H2 usa uma sequência nativa.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_seq")
+    @SequenceGenerator(name = "account_seq", sequenceName = "account_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -21,7 +28,13 @@ public abstract class Account { // CONTINUA SENDO ABSTRATA, CORRETO
     @Column(nullable = false, precision = 19, scale = 2) // Adicionado nullable e BigDecimal precision/scale
     private BigDecimal balance;
 
-    @ManyToOne(optional = false)
+    // Controle de concorrência otimista: o UPDATE só acontece se a versão lida ainda for a do banco
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    // LAZY: transferências e saldos não precisam do cliente; quem precisa usa WITH_CLIENT ou JOIN FETCH
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "client_id", nullable = false) // Adicionado nullable=false para a coluna
     private Client client;
 
@@ -41,6 +54,10 @@ public abstract class Account { // CONTINUA SENDO ABSTRATA, CORRETO
         return id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     // Remover setId - IDs gerados automaticamente não devem ser setados.
     // public void setId(Long id) { this.id = id; }
 
@@ -82,21 +99,31 @@ public abstract class Account { // CONTINUA SENDO ABSTRATA, CORRETO
                 "id=" + id +
                 ", accountNumber='" + accountNumber + '\'' +
                 ", balance=" + balance +
-                ", client=" + (client != null ? client.getCpf() : null) + // Mostrar CPF do cliente para melhor identificação
+                ", client=" + clientLabel() + // Mostrar CPF do cliente para melhor identificação
                 '}';
     }
 
+    // O cliente é LAZY: fora do EntityManager só mostra o CPF se ele foi carregado junto (WITH_CLIENT / JOIN FETCH)
+    private String clientLabel() {
+        if (client == null) {
+            return null;
+        }
+        return Persistence.getPersistenceUtil().isLoaded(client) ? client.getCpf() : "#" + client.getId();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         // if (!(o instanceof Account)) return false; // Pode ser getClass() != o.getClass() para herança
         // Para herança JOINED, é comum usar getClass() != o.getClass() se a identidade de subclasses é distinta,
         // mas instanceof Account funciona se o ID e accountNumber são o suficiente para identidade na base.
-        if (o == null || getClass() != o.getClass()) return false;
+        // Com as associações LAZY a conta pode chegar como proxy do Hibernate (outra classe, campos vazios):
+        // por isso instanceof e getId() em vez de getClass() e do campo id
+        if (!(o instanceof Account)) return false;
         Account account = (Account) o;
         // Comparar pelo ID é o mais recomendado para entidades persistidas.
         // accountNumber também é unique, então pode ser incluído para robustez antes da persistência.
-        return Objects.equals(id, account.id); // Recomenda-se apenas o ID
+        return Objects.equals(id, account.getId()); // Recomenda-se apenas o ID
     }
 
     @Override
@@ -7,10 +7,15 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "cards")
+@NamedEntityGraph(name = Card.WITH_ACCOUNT, attributeNodes = @NamedAttributeNode("account"))
 public class Card {
 
+    public static final String WITH_ACCOUNT = "Card.withAccount";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Ids em blocos de 50 (ver Account)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_seq")
+    @SequenceGenerator(name = "cards_seq", sequenceName = "cards_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false) // Garante que o número do cartão é único e não nulo
@@ -28,7 +33,12 @@ public class Card {
     @Column(nullable = false, precision = 19, scale = 2) // Usar BigDecimal para valores monetários
     private BigDecimal creditLimit;
 
-    @ManyToOne
+    // Controle de concorrência otimista: o UPDATE só acontece se a versão lida ainda for a do banco
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    @ManyToOne(fetch = FetchType.LAZY) // Carregada junto só por quem precisa (WITH_ACCOUNT / JOIN FETCH)
     @JoinColumn(name = "account_id", nullable = false) // Um cartão pertence a UMA conta, e a conta não pode ser nula
     private Account account;
 
@@ -50,6 +60,10 @@ public class Card {
         return id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public String getCardNumber() {
         return cardNumber;
     }
@@ -10,7 +10,9 @@ import java.util.Objects;
 public class Client {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Ids em blocos de 50 (ver Account)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "clients_seq")
+    @SequenceGenerator(name = "clients_seq", sequenceName = "clients_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 100) // Nome não pode ser nulo e tem um limite de tamanho
@@ -126,9 +128,9 @@ public class Client {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Client)) return false; // Pode ser um proxy LAZY do Hibernate (ver Account.equals)
         Client client = (Client) o;
-        return Objects.equals(id, client.id) && Objects.equals(cpf, client.cpf);
+        return Objects.equals(id, client.getId()) && Objects.equals(cpf, client.getCpf());
     }
 
     @Override
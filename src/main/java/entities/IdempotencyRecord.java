@@ -0,0 +1,91 @@
+package entities;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Resultado gravado de uma operação feita com chave de idempotência (ver IdempotencyService).
+// É gravado na mesma transação da operação: se a transferência foi confirmada, a chave também foi.
+// requestHash identifica o pedido original; a mesma chave com outro pedido é recusada.
+@Entity
+@Table(name = IdempotencyRecord.TABLE)
+public class IdempotencyRecord {
+
+    public static final String TABLE = "idempotency_keys";
+    public static final int MAX_KEY_LENGTH = 64;
+
+    @Id
+    @Column(name = "idempotency_key", length = MAX_KEY_LENGTH)
+    private String key;
+
+    @Column(nullable = false, length = 20)
+    private String operation;
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    // Id da Transaction ou PixTransaction criada; null quando o registro é gravado depois pelo ledger
+    @Column(name = "result_id")
+    private Long resultId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public IdempotencyRecord() {
+        // Construtor vazio exigido pelo JPA
+    }
+
+    public IdempotencyRecord(String key, String operation, String requestHash, LocalDateTime createdAt) {
+        this.key = key;
+        this.operation = operation;
+        this.requestHash = requestHash;
+        this.createdAt = createdAt;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public Long getResultId() {
+        return resultId;
+    }
+
+    public void setResultId(Long resultId) {
+        this.resultId = resultId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IdempotencyRecord that)) return false;
+        return Objects.equals(key, that.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(key);
+    }
+
+    @Override
+    public String toString() {
+        return "IdempotencyRecord{" +
+                "key='" + key + '\'' +
+                ", operation='" + operation + '\'' +
+                ", resultId=" + resultId +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
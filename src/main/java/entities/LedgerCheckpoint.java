@@ -0,0 +1,46 @@
+package entities;
+
+import jakarta.persistence.*;
+
+// Última sequência do journal do ledger que já está gravada no banco.
+// É atualizada na mesma transação do lote do LedgerPersister, então saldo e checkpoint nunca divergem.
+@Entity
+@Table(name = "ledger_checkpoint")
+public class LedgerCheckpoint {
+
+    public static final long SINGLETON_ID = 1L; // Existe uma única linha
+
+    @Id
+    private Long id;
+
+    @Column(name = "last_sequence", nullable = false)
+    private long lastSequence;
+
+    public LedgerCheckpoint() {
+        // Construtor vazio exigido pelo JPA
+    }
+
+    public LedgerCheckpoint(long lastSequence) {
+        this.id = SINGLETON_ID;
+        this.lastSequence = lastSequence;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void setLastSequence(long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerCheckpoint{" +
+                "lastSequence=" + lastSequence +
+                '}';
+    }
+}
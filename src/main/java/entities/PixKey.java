@@ -13,7 +13,9 @@ public class PixKey {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Ids em blocos de 50 (ver Account)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pix_keys_seq")
+    @SequenceGenerator(name = "pix_keys_seq", sequenceName = "pix_keys_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true) // Chave Pix deve ser única e não nula
@@ -23,7 +25,8 @@ public class PixKey {
     @Column(nullable = false) // Tipo da chave não pode ser nulo
     private PixKeyType keyType; // Alterado para o tipo Enum
 
-    @ManyToOne(optional = false)
+    // LAZY: as buscas do repositório trazem a conta com JOIN FETCH, porque a chave fica em cache desanexada
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "account_id", nullable = false) // Coluna account_id não pode ser nula
     private Account account;
 
@@ -7,13 +7,21 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "pix_transactions") // Nome da tabela
+@NamedEntityGraph(name = PixTransaction.WITH_ACCOUNTS, attributeNodes = {
+        @NamedAttributeNode("originAccount"),
+        @NamedAttributeNode("destinationAccount")
+})
 public class PixTransaction {
 
+    public static final String WITH_ACCOUNTS = "PixTransaction.withAccounts";
+
     // Reutilizando o Enum de PixKey para consistência
     // public enum PixKeyType { CPF, EMAIL, PHONE, RANDOM }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Ids em blocos de 50 (ver Account)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pix_transactions_seq")
+    @SequenceGenerator(name = "pix_transactions_seq", sequenceName = "pix_transactions_seq", allocationSize = 50)
     private Long id;
 
     // Dados da chave Pix usada na transação (do recebedor)
@@ -33,14 +41,14 @@ public class PixTransaction {
     private LocalDateTime dateTime; // Usar LocalDateTime para mais precisão
 
     // Referência à conta que originou o pagamento Pix
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY) // LAZY como todas as associações: ver WITH_ACCOUNTS
     @JoinColumn(name = "origin_account_id", nullable = false)
     private Account originAccount;
 
     // Opcional: Referência à conta de destino (se for uma conta interna ao sistema)
     // Se a PixKey do recebedor for de uma conta do SEU sistema, você pode linkar.
     // Se for para um banco externo, essa referência seria nula.
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "destination_account_id")
     private Account destinationAccount; // Pode ser nulo se for para outro banco
 
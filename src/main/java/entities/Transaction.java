@@ -7,10 +7,18 @@ import java.util.Objects; // Importado Objects para equals/hashCode
 
 @Entity
 @Table(name = "transactions")
+@NamedEntityGraph(name = Transaction.WITH_ACCOUNTS, attributeNodes = {
+        @NamedAttributeNode("originAccount"),
+        @NamedAttributeNode("destinationAccount")
+})
 public class Transaction {
 
+    public static final String WITH_ACCOUNTS = "Transaction.withAccounts";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Ids em blocos de 50 (ver Account)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -22,11 +30,12 @@ public class Transaction {
     @Column(nullable = false)
     private LocalDate date;
 
-    @ManyToOne
+    // As contas são LAZY: telas que mostram os números usam WITH_ACCOUNTS, JOIN FETCH ou a projeção TransactionSummary
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "origin_account_id", nullable = false)
     private Account originAccount;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "destination_account_id", nullable = false)
     private Account destinationAccount;
 
@@ -1,5 +1,6 @@
 package interfaces;
 
+import dto.AccountSummary;
 import entities.Account;
 import java.util.List;
 import java.util.Optional;
@@ -7,6 +8,7 @@ import java.util.Optional;
 public interface IAccountRepository {
     Optional<Account> getByAccountNumber(String accountNumber);
     List<Account> getAll();
+    List<AccountSummary> getAllSummaries(); // Projeção para as listagens
     // NÃO ADICIONAR create/update/delete aqui, pois a entidade é abstrata.
     // Essas operações são para ICurrentAccountRepository e ISavingsAccountRepository.
 }
\ No newline at end of file
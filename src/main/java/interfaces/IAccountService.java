@@ -1,5 +1,6 @@
 package interfaces;
 
+import dto.AccountSummary;
 import entities.Account;
 import java.util.List;
 import java.util.Optional;
@@ -7,5 +8,6 @@ import java.util.Optional;
 public interface IAccountService<T extends Account> { // O <T extends Account> está correto
     Optional<T> getByAccountNumber(String accountNumber);
     List<T> getAll();
+    List<AccountSummary> getAllSummaries(); // Projeção para as listagens
     // NÃO ADICIONAR create/update/delete aqui, pois a entidade é abstrata.
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package interfaces;
 
+import dto.CardSummary;
 import entities.Card;
 import java.util.List;
 import java.util.Optional;
@@ -8,6 +9,7 @@ public interface ICardRepository<T> {
     void create(T entity);
     Optional<T> getByCardNumber(String cardNumber); // Alterado de long para String
     List<T> getAll();
+    List<CardSummary> getAllSummaries(); // Projeção para as listagens
     void update(T entity);
     void delete(String cardNumber); // Alterado de long para String
 }
\ No newline at end of file
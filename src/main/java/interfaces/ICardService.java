@@ -1,5 +1,6 @@
 package interfaces;
 
+import dto.CardSummary;
 import java.util.List;
 import java.util.Optional;
 
@@ -8,6 +9,7 @@ public interface ICardService<Card> {
     void create(Card card);
     Optional<Card> getByCardNumber(String cardNumber); // Alterado de long para String
     List<Card> getAll();
+    List<CardSummary> getAllSummaries(); // Projeção para as listagens
     void update(Card card);
     void delete(String cardNumber); // Alterado de long para String
 
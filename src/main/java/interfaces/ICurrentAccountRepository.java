@@ -1,5 +1,6 @@
 package interfaces;
 
+import dto.AccountSummary;
 import entities.CurrentAccount;
 import java.util.List;
 import java.util.Optional;
@@ -8,6 +9,7 @@ public interface ICurrentAccountRepository {
     void create(CurrentAccount account);
     Optional<CurrentAccount> getByAccountNumber(String accountNumber);
     List<CurrentAccount> getAll();
+    List<AccountSummary> getAllSummaries(); // Projeção para as listagens
     void update(CurrentAccount account);
     void delete(String accountNumber);
 }
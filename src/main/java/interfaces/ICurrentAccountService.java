@@ -1,5 +1,6 @@
 package interfaces;
 
+import dto.AccountSummary;
 import entities.CurrentAccount;
 
 import java.util.List;
@@ -15,4 +16,5 @@ public interface ICurrentAccountService<T extends CurrentAccount> {
     void transferToSavings(String currentAccountNumber, String savingsAccountNumber, BigDecimal amount);
 
     List<CurrentAccount> getAll();
+    List<AccountSummary> getAllSummaries(); // Projeção para as listagens
 }
@@ -0,0 +1,16 @@
+package interfaces;
+
+import entities.IdempotencyRecord;
+import util.CacheMetrics;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IIdempotencyRepository {
+
+    Optional<IdempotencyRecord> findByKey(String key); // Índice em memória primeiro, depois o banco
+    void reserve(IdempotencyRecord record); // Dentro da UnitOfWork da operação: grava a chave antes de mexer em saldo
+    void remember(IdempotencyRecord record); // Depois do commit: respostas repetidas saem da memória
+    int deleteOlderThan(LocalDateTime cutoff);
+    CacheMetrics getIndexMetrics();
+}
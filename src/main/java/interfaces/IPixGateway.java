@@ -0,0 +1,14 @@
+package interfaces;
+
+import dto.PixGatewayResult;
+import dto.PixSettlementRequest;
+
+// Ponto de integração com o sistema de pagamentos externo (SPI) para Pix a chaves de outros bancos.
+// Chamado pelas threads do PixSettlementPipeline, várias ao mesmo tempo: a implementação deve ser thread-safe.
+// - resultado definitivo: PixGatewayResult.accepted() ou rejected(motivo);
+// - resultado desconhecido (timeout, erro de rede, indisponível): lançar RuntimeException; a liquidação é reenviada
+//   com o mesmo pixTransactionId, então a implementação deve tratar reenvios como a mesma liquidação.
+public interface IPixGateway {
+
+    PixGatewayResult settle(PixSettlementRequest request);
+}
@@ -1,14 +1,25 @@
 package interfaces;
 
+import dto.PixSettlementRequest;
 import entities.PixTransaction;
+
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface IPixTransactionRepository {
 
-    void create(PixTransaction pixTransaction);
+    PixTransaction create(PixTransaction pixTransaction); // Retorna a cópia gravada (com id); o objeto recebido não é persistido
     Optional<PixTransaction> findById(Long id);
     List<PixTransaction> findAllByAccount(Long accountId);
+    long streamAll(Long originAccountId, Consumer<PixTransaction> consumer); // null = todas; retorna quantas linhas leu
+
+    // Liquidação assíncrona do Pix para outros bancos (ver PixSettlementPipeline)
+    PixTransaction reserve(PixTransaction pixTransaction); // Debita a origem e grava uma cópia PENDING
+    List<PixSettlementRequest> findPendingSettlements(LocalDateTime acceptedBefore, int limit);
+    int markCompleted(List<Long> ids);
+    int markFailed(List<Long> ids); // Estorna a origem e grava FAILED
 
     // Sugestão: Métodos para gerenciamento (se necessário, transações geralmente são imutáveis)
     // void update(PixTransaction pixTransaction);
@@ -1,17 +1,23 @@
 package interfaces;
 
+import dto.IdempotentResult;
 import entities.PixTransaction;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface IPixTransactionService {
 
     // Método para iniciar uma transação Pix completa (será implementado no serviço)
     void performPixTransfer(String originAccountNumber, String pixKeyUsed, String keyTypeUsed, BigDecimal value);
+    // Com chave de idempotência: repetições com a mesma chave devolvem o resultado da primeira sem debitar de novo
+    Optional<IdempotentResult> performPixTransfer(String originAccountNumber, String pixKeyUsed, String keyTypeUsed,
+                                                  BigDecimal value, String idempotencyKey);
 
     void create(PixTransaction pixTransaction); // Renomeado de createPixTransaction
     Optional<PixTransaction> findById(Long id);
     List<PixTransaction> findAllByAccount(Long accountId);
+    long streamAll(Long originAccountId, Consumer<PixTransaction> consumer); // Exportação/conciliação sem carregar tudo
 }
\ No newline at end of file
@@ -1,6 +1,11 @@
 package interfaces;
 
+import dto.AccountSummary;
+import dto.InterestAccrualResult;
 import entities.SavingsAccount;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 
@@ -8,6 +13,13 @@ public interface ISavingsAccountRepository {
     void create(SavingsAccount conta);
     Optional<SavingsAccount> getByAccountNumber(String accountNumber);
     List<SavingsAccount> getAll();
+    List<AccountSummary> getAllSummaries(); // Projeção para as listagens
     void update(SavingsAccount conta);
     void delete(String accountNumber);
+
+    // Fechamento de juros em blocos por faixa de id (ver InterestAccrualJob)
+    long[] getIdBounds();
+    InterestAccrualResult accrueInterest(long fromId, long toId, YearMonth period);
+    InterestAccrualResult accrueInterestInBulk(long fromId, long toId, YearMonth period); // UPDATE e INSERT ... SELECT em lote
+    BigDecimal accrueInterest(SavingsAccount locked, LocalDate accrualDate); // Uma conta já bloqueada; retorna os juros
 }
@@ -1,10 +1,13 @@
 package interfaces;
 
+import dto.AccountSummary;
+import dto.InterestAccrualResult;
 import entities.SavingsAccount;
 
 import java.util.List;
 import java.util.Optional;
 import java.math.BigDecimal;
+import java.time.YearMonth;
 
 public interface ISavingsAccountService<T extends SavingsAccount> {
     void create(T account);
@@ -13,7 +16,9 @@ public interface ISavingsAccountService<T extends SavingsAccount> {
     void delete(String accountNumber);
 
     void applyInterest(String accountNumber);
+    InterestAccrualResult accrueMonthlyInterest(YearMonth period); // Todas as poupanças, em blocos paralelos
     void transferToCurrent(String savingsAccountNumber, String currentAccountNumber, BigDecimal amount);
 
     List<SavingsAccount> getAll();
+    List<AccountSummary> getAllSummaries(); // Projeção para as listagens
 }
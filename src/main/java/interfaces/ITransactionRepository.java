@@ -1,16 +1,26 @@
 package interfaces;
 
 // Importar java.util.List em vez de TransactionHistory
+import dto.TransactionBatchResult;
+import dto.TransactionCursor;
+import dto.TransactionFilter;
+import dto.TransactionPage;
+import dto.TransactionSummary;
 import entities.Transaction;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ITransactionRepository { // Removido <T>
 
-    void create(Transaction entity); // A entidade Transaction é concreta
+    Transaction create(Transaction entity); // Retorna a cópia gravada (com id); o objeto recebido não é persistido
+    List<TransactionBatchResult> createBatch(List<Transaction> entities); // Um resultado por item, na mesma ordem
     Optional<Transaction> getById(long id);
     List<Transaction> getAll(); // Alterado de TransactionHistory para List<Transaction>
+    TransactionPage<Transaction> findPage(TransactionFilter filter, TransactionCursor after, int pageSize); // after == null: primeira página
+    TransactionPage<TransactionSummary> findSummaryPage(TransactionFilter filter, TransactionCursor after, int pageSize); // Só as colunas da listagem
+    long streamAll(TransactionFilter filter, Consumer<Transaction> consumer); // Varredura em memória constante; retorna quantas linhas leu
     void update(Transaction entity);
     void delete(long id);
 }
\ No newline at end of file
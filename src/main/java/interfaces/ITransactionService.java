@@ -1,16 +1,31 @@
 package interfaces;
 
 // Importar java.util.List em vez de TransactionHistory
+import dto.IdempotentResult;
+import dto.TransactionBatchResult;
+import dto.TransactionCursor;
+import dto.TransactionFilter;
+import dto.TransactionPage;
+import dto.TransactionSummary;
 import entities.Transaction;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ITransactionService { // Removido <Transaction> aqui
 
     void create(Transaction transaction);
+    Optional<IdempotentResult> create(Transaction transaction, String idempotencyKey); // Repetições com a mesma chave não debitam de novo
+    List<TransactionBatchResult> createBatch(List<Transaction> transactions);
     Optional<Transaction> getById(long id);
     List<Transaction> getAll(); // Alterado de TransactionHistory para List<Transaction>
+    TransactionPage<Transaction> getPage(TransactionFilter filter, TransactionCursor after, int pageSize); // after == null: primeira página
+    TransactionPage<TransactionSummary> getSummaryPage(TransactionFilter filter, TransactionCursor after, int pageSize);
+    Iterator<Transaction> iterate(TransactionFilter filter, int pageSize); // Busca as páginas conforme a iteração avança
+    Iterator<TransactionSummary> iterateSummaries(TransactionFilter filter, int pageSize); // Idem, com a projeção das listagens
+    long streamAll(TransactionFilter filter, Consumer<Transaction> consumer); // Exportação/conciliação sem carregar a tabela inteira
     void update(Transaction transaction);
     void delete(long id);
 }
\ No newline at end of file
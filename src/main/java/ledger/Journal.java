@@ -0,0 +1,360 @@
+package ledger;
+
+import entities.PixKey;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Journal (write-ahead log) das transferências do ledger, só de acréscimo.
+// - Os registros vão para arquivos de segmento de tamanho fixo mapeados em memória (journal-<primeira sequência>.seg);
+//   quando um segmento enche, ele é sincronizado e o próximo é criado.
+// - Group commit: append() só copia o registro para o mapeamento; o fsync (force) acontece em sync(),
+//   que o writer chama a cada syncBatchSize registros ou syncIntervalMillis, confirmando vários comandos de uma vez.
+// - Cada registro é [tamanho][crc32][dados]; um registro incompleto no fim (queda no meio da escrita) encerra o replay.
+// - Segmentos cujas transferências já estão no banco (checkpoint) são apagados por truncateUpTo().
+// Apenas a thread ledger-writer chama append/sync; antes do start() o replay roda na thread de inicialização.
+public class Journal implements AutoCloseable {
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".seg";
+    private static final int HEADER_BYTES = Integer.BYTES * 2; // tamanho + crc
+    private static final int MAX_TEXT_BYTES = 1024;
+    private static final int MIN_SEGMENT_BYTES = 64 * 1024;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long syncIntervalMillis;
+    private final int syncBatchSize;
+
+    private final List<Segment> segments = new ArrayList<>(); // Em ordem de sequência; o último é o atual
+    private final ByteBuffer record;
+    private final CRC32 crc = new CRC32();
+
+    private long lastSequence;
+    private int unsyncedCount;
+    private long firstUnsyncedAtMillis;
+
+    private Journal(Path directory, int segmentBytes, long syncIntervalMillis, int syncBatchSize) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.syncBatchSize = syncBatchSize;
+        this.record = ByteBuffer.allocate(HEADER_BYTES + 64 + MAX_TEXT_BYTES);
+    }
+
+    // Abre (ou cria) o journal no diretório e posiciona a escrita depois do último registro válido
+    public static Journal open(Path directory, int segmentBytes, long syncIntervalMillis, int syncBatchSize) throws IOException {
+        if (segmentBytes < MIN_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Journal segment size must be at least " + MIN_SEGMENT_BYTES + " bytes.");
+        }
+        if (syncIntervalMillis < 1 || syncBatchSize < 1) {
+            throw new IllegalArgumentException("syncIntervalMillis and syncBatchSize must be positive.");
+        }
+        Files.createDirectories(directory);
+        Journal journal = new Journal(directory, segmentBytes, syncIntervalMillis, syncBatchSize);
+        journal.openExistingSegments();
+        return journal;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public int getSegmentCount() {
+        synchronized (segments) {
+            return segments.size();
+        }
+    }
+
+    // O journal nunca recomeça abaixo do checkpoint do banco (diretório apagado, vazio ou trocado por um antigo):
+    // se o que está em disco termina antes dele, esses registros já estão todos no banco, então os segmentos são
+    // descartados e a escrita continua em checkpoint + 1. Chamado antes do replay, na thread de inicialização.
+    void continueAfter(long checkpoint) throws IOException {
+        if (checkpoint <= lastSequence) {
+            return;
+        }
+        synchronized (segments) {
+            for (Segment segment : segments) {
+                segment.close();
+                Files.deleteIfExists(segment.path);
+            }
+            segments.clear();
+            segments.add(Segment.open(segmentPath(checkpoint + 1), checkpoint + 1, segmentBytes));
+        }
+        lastSequence = checkpoint;
+        unsyncedCount = 0;
+    }
+
+    // Entrega, em ordem, os comandos com sequência maior que afterSequence. Retorna quantos foram entregues.
+    long replay(long afterSequence, Consumer<TransferCommand> handler) {
+        List<Segment> snapshot;
+        synchronized (segments) {
+            snapshot = new ArrayList<>(segments);
+        }
+        long count = 0;
+        for (Segment segment : snapshot) {
+            ByteBuffer buffer = segment.map.duplicate();
+            buffer.position(0);
+            TransferCommand command;
+            while ((command = readNext(buffer)) != null) {
+                if (command.sequence > afterSequence) {
+                    handler.accept(command);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Grava o comando no segmento atual e define command.sequence. Só fica durável depois de sync().
+    void append(TransferCommand command) throws IOException {
+        encode(command, lastSequence + 1);
+        Segment current = currentSegment();
+        if (current.map.remaining() < record.remaining()) {
+            rotate();
+            current = currentSegment();
+        }
+        current.map.put(record);
+        lastSequence++;
+        command.sequence = lastSequence;
+        if (unsyncedCount++ == 0) {
+            firstUnsyncedAtMillis = System.currentTimeMillis();
+        }
+    }
+
+    boolean hasUnsynced() {
+        return unsyncedCount > 0;
+    }
+
+    // Group commit: sincroniza quando juntou syncBatchSize registros ou o mais antigo espera há syncIntervalMillis
+    boolean isSyncDue() {
+        return unsyncedCount >= syncBatchSize
+                || (unsyncedCount > 0 && System.currentTimeMillis() - firstUnsyncedAtMillis >= syncIntervalMillis);
+    }
+
+    void sync() {
+        if (unsyncedCount == 0) {
+            return;
+        }
+        currentSegment().map.force();
+        unsyncedCount = 0;
+    }
+
+    // Apaga os segmentos antigos cujos registros têm todos sequência <= persistedSequence (o segmento atual nunca é apagado)
+    void truncateUpTo(long persistedSequence) {
+        synchronized (segments) {
+            while (segments.size() > 1 && segments.get(1).firstSequence - 1 <= persistedSequence) {
+                Segment old = segments.remove(0);
+                try {
+                    old.close();
+                    Files.deleteIfExists(old.path);
+                } catch (IOException e) {
+                    System.err.println("Could not delete journal segment " + old.path + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (segments) {
+            for (Segment segment : segments) {
+                try {
+                    segment.map.force();
+                    segment.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing journal segment " + segment.path + ": " + e.getMessage());
+                }
+            }
+            segments.clear();
+        }
+    }
+
+    private void openExistingSegments() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(p -> p.getFileName().toString().startsWith(PREFIX) && p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path path : paths) {
+            segments.add(Segment.open(path, firstSequenceOf(path), segmentBytes));
+        }
+        if (segments.isEmpty()) {
+            segments.add(Segment.open(segmentPath(1), 1, segmentBytes));
+            lastSequence = 0;
+            return;
+        }
+        // Percorre todos os segmentos para validar a sequência e achar o fim do último
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            boolean last = i == segments.size() - 1;
+            ByteBuffer buffer = segment.map.duplicate();
+            buffer.position(0);
+            lastSequence = segment.firstSequence - 1;
+            TransferCommand command;
+            while ((command = readNext(buffer)) != null) {
+                if (command.sequence != lastSequence + 1) {
+                    throw new IOException("Journal sequence gap in " + segment.path + " after " + lastSequence);
+                }
+                lastSequence = command.sequence;
+            }
+            if (!last) {
+                if (segments.get(i + 1).firstSequence != lastSequence + 1) {
+                    throw new IOException("Journal segment " + segment.path + " is truncated or corrupted after sequence " + lastSequence);
+                }
+                continue;
+            }
+            // Zera o que sobrou de um registro incompleto para ele não reaparecer depois dos próximos registros
+            int end = buffer.position();
+            int tornLimit = Math.min(segment.map.limit(), end + record.capacity());
+            for (int p = end; p < tornLimit; p++) {
+                segment.map.put(p, (byte) 0);
+            }
+            segment.map.position(end);
+        }
+    }
+
+    private Segment currentSegment() {
+        synchronized (segments) {
+            return segments.get(segments.size() - 1);
+        }
+    }
+
+    private void rotate() throws IOException {
+        Segment full = currentSegment();
+        full.map.force(); // O segmento anterior fica inteiro em disco antes de o próximo existir
+        Segment next = Segment.open(segmentPath(lastSequence + 1), lastSequence + 1, segmentBytes);
+        synchronized (segments) {
+            segments.add(next);
+        }
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+    }
+
+    private static long firstSequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    // Layout dos dados: tipo, sequência, origem, destino, centavos, data/hora (segundos + nanos em UTC),
+    // texto (tipo da transação ou chave Pix) e o tipo da chave Pix (-1 quando não houver)
+    private void encode(TransferCommand command, long sequence) {
+        byte[] text = command.kind == TransferCommand.Kind.PIX
+                ? bytesOf(command.pixKeyUsed)
+                : bytesOf(command.typeTransaction);
+        if (text != null && text.length > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Journal text field is longer than " + MAX_TEXT_BYTES + " bytes.");
+        }
+        record.clear();
+        record.position(HEADER_BYTES);
+        record.put((byte) command.kind.ordinal());
+        record.putLong(sequence);
+        record.putLong(command.originId);
+        record.putLong(command.destinationId);
+        record.putLong(command.amountCents);
+        record.putLong(command.dateTime.toEpochSecond(ZoneOffset.UTC));
+        record.putInt(command.dateTime.getNano());
+        record.putShort((short) (text == null ? -1 : text.length));
+        if (text != null) {
+            record.put(text);
+        }
+        record.put((byte) (command.keyTypeUsed == null ? -1 : command.keyTypeUsed.ordinal()));
+        int payloadLength = record.position() - HEADER_BYTES;
+        crc.reset();
+        crc.update(record.array(), HEADER_BYTES, payloadLength);
+        record.putInt(0, payloadLength);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        record.flip();
+    }
+
+    // Lê o próximo registro válido ou retorna null no fim dos dados (área zerada ou registro incompleto)
+    private TransferCommand readNext(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            buffer.position(start);
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        crc.reset();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) {
+            buffer.position(start);
+            return null;
+        }
+        ByteBuffer data = ByteBuffer.wrap(payload);
+        TransferCommand.Kind kind = TransferCommand.Kind.values()[data.get()];
+        long sequence = data.getLong();
+        long originId = data.getLong();
+        long destinationId = data.getLong();
+        long amountCents = data.getLong();
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(data.getLong(), data.getInt(), ZoneOffset.UTC);
+        short textLength = data.getShort();
+        String text = null;
+        if (textLength >= 0) {
+            byte[] textBytes = new byte[textLength];
+            data.get(textBytes);
+            text = new String(textBytes, StandardCharsets.UTF_8);
+        }
+        byte keyType = data.get();
+        TransferCommand command = kind == TransferCommand.Kind.PIX
+                ? new TransferCommand(kind, originId, destinationId, amountCents, null, text,
+                        keyType < 0 ? null : PixKey.PixKeyType.values()[keyType])
+                : new TransferCommand(kind, originId, destinationId, amountCents, text);
+        command.sequence = sequence;
+        command.dateTime = dateTime;
+        return command;
+    }
+
+    private static byte[] bytesOf(String text) {
+        return text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class Segment {
+        final Path path;
+        final long firstSequence;
+        final FileChannel channel;
+        final MappedByteBuffer map;
+
+        private Segment(Path path, long firstSequence, FileChannel channel, MappedByteBuffer map) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.channel = channel;
+            this.map = map;
+        }
+
+        static Segment open(Path path, long firstSequence, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Um segmento existente mantém o tamanho com que foi criado
+            long length = Math.max(channel.size(), size);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            return new Segment(path, firstSequence, channel, map);
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
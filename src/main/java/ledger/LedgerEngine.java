@@ -0,0 +1,374 @@
+package ledger;
+
+import entities.Account;
+import entities.PixKey;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Ledger em memória com um único escritor (estilo LMAX):
+// - os saldos ficam em um long[] de centavos indexado pelo id da conta;
+// - qualquer thread enfileira comandos no RingBuffer (sem locks);
+// - só a thread "ledger-writer" lê os comandos e altera os saldos, então não há lock nem conflito entre transferências;
+// - as transferências aplicadas são gravadas de forma assíncrona e em lotes pelo LedgerPersister.
+// Com um Journal, cada transferência é escrita no journal antes de ser confirmada ao chamador (group commit)
+// e, na inicialização, replayJournal() reaplica o que ainda não tinha chegado ao banco.
+// É opcional: enquanto estiver ligado, ele é o dono de TODOS os saldos. Transferências, Pix e movimentos entre corrente
+// e poupança passam por ele; contas novas entram com openAccount; o que ainda não passa (juros, estorno de Pix liquidado
+// pelo PixSettlementPipeline, alteração direta de saldo) é recusado ou desligado enquanto ele estiver ligado.
+public class LedgerEngine {
+
+    // Tempo máximo que quem chamou espera a confirmação de um comando (ver await)
+    public static final long CONFIRM_TIMEOUT_MILLIS = 10_000;
+    private static final int SPINS_BEFORE_PARK = 200;
+    private static final long PARK_NANOS = 50_000;
+
+    private final RingBuffer<TransferCommand> inbound;
+    private final LedgerPersister persister;
+    private final Journal journal; // null: sem durabilidade até o LedgerPersister gravar o lote
+
+    // Transferências já escritas no journal que esperam o próximo sync para serem confirmadas (só o writer usa)
+    private final List<TransferCommand> awaitingSync = new ArrayList<>();
+
+    // Estado do writer: só a thread ledger-writer altera estes arrays depois do start()
+    private long[] balances = new long[1024];
+    private boolean[] known = new boolean[1024];
+
+    // Escrito pelo writer após cada comando; a leitura dele por outra thread torna os saldos visíveis (happens-before)
+    private volatile long appliedCount;
+    // accepting: submit() aceita comandos; running: o writer continua no laço. O stop() fecha a entrada primeiro,
+    // espera os submit() em andamento terminarem de enfileirar e só então deixa o writer esvaziar a fila e sair.
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private final AtomicInteger activeSubmitters = new AtomicInteger();
+    private Thread writer;
+    private boolean journalSeeded; // continueJournalAfter já rodou (replayJournal ou start)
+
+    public LedgerEngine(int ringCapacity, LedgerPersister persister) {
+        this(ringCapacity, persister, null);
+    }
+
+    public LedgerEngine(int ringCapacity, LedgerPersister persister, Journal journal) {
+        this.inbound = new RingBuffer<>(ringCapacity);
+        this.persister = persister;
+        this.journal = journal;
+        persister.attach(journal);
+    }
+
+    // Carrega os saldos atuais. Deve ser chamado antes do start().
+    public synchronized void load(List<? extends Account> accounts) {
+        if (running) {
+            throw new IllegalStateException("Ledger already started.");
+        }
+        for (Account account : accounts) {
+            register(account.getId(), toCents(account.getBalance()));
+        }
+    }
+
+    // Reaplica as transferências do journal posteriores ao checkpoint do banco e as reenvia ao LedgerPersister.
+    // Deve ser chamado depois do load() (saldos do banco) e antes do start(). Retorna quantas foram reaplicadas.
+    public synchronized long replayJournal() {
+        if (running) {
+            throw new IllegalStateException("Ledger already started.");
+        }
+        if (journal == null) {
+            return 0;
+        }
+        long checkpoint = persister.readCheckpoint();
+        continueJournalAfter(checkpoint);
+        return journal.replay(checkpoint, command -> {
+            if (!isKnown(command.originId)
+                    || (command.destinationId != TransferCommand.EXTERNAL_ACCOUNT && !isKnown(command.destinationId))) {
+                System.err.println("Skipping journal entry " + command.sequence + ": account no longer exists.");
+                return;
+            }
+            // Já foi validada quando aconteceu: só refaz o movimento
+            move(command);
+            persister.enqueue(command);
+        });
+    }
+
+    // As sequências novas do journal continuam depois do checkpoint do banco, mesmo com o diretório vazio
+    private void continueJournalAfter(long checkpoint) {
+        try {
+            journal.continueAfter(checkpoint);
+            journalSeeded = true;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not continue the journal after checkpoint " + checkpoint + ": " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        if (journal != null && !journalSeeded) {
+            continueJournalAfter(persister.readCheckpoint());
+        }
+        running = true;
+        accepting = true;
+        persister.start();
+        writer = new Thread(this::writerLoop, "ledger-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Processa o que já está na fila, grava tudo no banco e para as threads
+    public synchronized void stop() {
+        if (writer == null) { // running pode já ser false se o journal falhou
+            return;
+        }
+        accepting = false;
+        awaitSubmitters();
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        persister.stop();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    // O future termina quando o writer aplica a transferência (ou falha com IllegalArgumentException).
+    public CompletableFuture<Void> transfer(long originId, long destinationId, BigDecimal value, String typeTransaction) {
+        if (value == null || value.signum() <= 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid transfer amount."));
+        }
+        if (originId == destinationId) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Origin and destination accounts must be different."));
+        }
+        long cents;
+        try {
+            cents = toCents(value);
+        } catch (ArithmeticException e) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Amount must have at most 2 decimal places."));
+        }
+        return submit(new TransferCommand(TransferCommand.Kind.TRANSFER, originId, destinationId, cents, typeTransaction));
+    }
+
+    // Pix a partir de uma conta do ledger; destinationId = 0 quando a chave é de outro banco (só débito)
+    public CompletableFuture<Void> pixTransfer(long originId, long destinationId, String pixKeyUsed,
+                                               PixKey.PixKeyType keyTypeUsed, BigDecimal value) {
+        if (value == null || value.signum() <= 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid transfer amount."));
+        }
+        if (originId == destinationId) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Origin and destination accounts must be different."));
+        }
+        long cents;
+        try {
+            cents = toCents(value);
+        } catch (ArithmeticException e) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Amount must have at most 2 decimal places."));
+        }
+        return submit(new TransferCommand(TransferCommand.Kind.PIX, originId, destinationId, cents, null, pixKeyUsed, keyTypeUsed));
+    }
+
+    // Registra uma conta criada depois do start() (o registro passa pelo writer como qualquer outro comando)
+    public CompletableFuture<Void> openAccount(long accountId, BigDecimal balance) {
+        long cents;
+        try {
+            cents = toCents(balance == null ? BigDecimal.ZERO : balance);
+        } catch (ArithmeticException e) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Balance must have at most 2 decimal places."));
+        }
+        return submit(new TransferCommand(TransferCommand.Kind.OPEN, 0, accountId, cents, null));
+    }
+
+    // Saldo visto pelo ledger (pode não refletir comandos ainda na fila)
+    public BigDecimal getBalance(long accountId) {
+        getAppliedCount(); // Leitura volátil: garante a visibilidade das escritas feitas pelo writer
+        if (!isKnown(accountId)) {
+            return null;
+        }
+        return BigDecimal.valueOf(balances[(int) accountId], 2);
+    }
+
+    public long getAppliedCount() {
+        return appliedCount;
+    }
+
+    public boolean isRunning() {
+        return accepting;
+    }
+
+    // Espera a confirmação de um comando por no máximo CONFIRM_TIMEOUT_MILLIS e relança a falha original
+    // (ex: saldo insuficiente). Chame fora de uma UnitOfWork: quem espera o ledger não deve segurar uma conexão do pool.
+    // No timeout o resultado é desconhecido: o comando ainda pode ser aplicado.
+    public static void await(CompletableFuture<Void> confirmation) {
+        try {
+            confirmation.get(CONFIRM_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Ledger did not confirm within " + CONFIRM_TIMEOUT_MILLIS + " ms; transfer outcome unknown.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ledger; transfer outcome unknown.", e);
+        }
+    }
+
+    private CompletableFuture<Void> submit(TransferCommand command) {
+        activeSubmitters.incrementAndGet();
+        try {
+            // Verificado depois do incremento: o stop() fecha a entrada e então espera activeSubmitters chegar a zero,
+            // então todo comando enfileirado aqui ainda é lido pelo writer
+            if (!accepting) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Ledger is not running."));
+            }
+            // Fila cheia: espera o writer abrir espaço (backpressure) em vez de perder o comando
+            while (!inbound.offer(command)) {
+                if (!accepting) { // O ledger parou (ou o journal falhou) enquanto a fila estava cheia
+                    return CompletableFuture.failedFuture(new IllegalStateException("Ledger is not running."));
+                }
+                Thread.onSpinWait();
+            }
+            return command.result;
+        } finally {
+            activeSubmitters.decrementAndGet();
+        }
+    }
+
+    private void awaitSubmitters() {
+        while (activeSubmitters.get() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void writerLoop() {
+        int idleSpins = 0;
+        while (running || !inbound.isEmpty() || !awaitingSync.isEmpty()) {
+            if (journal != null && journal.isSyncDue()) {
+                syncJournal();
+            }
+            TransferCommand command = inbound.poll();
+            if (command == null) {
+                if (!running && !awaitingSync.isEmpty()) {
+                    syncJournal(); // Parando: não espera o intervalo para confirmar o que falta
+                    continue;
+                }
+                if (++idleSpins < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                continue;
+            }
+            idleSpins = 0;
+            apply(command);
+        }
+        // Só chega aqui com a entrada já fechada (stop ou falha do journal); o que ainda foi enfileirado não será aplicado
+        accepting = false;
+        awaitSubmitters();
+        for (TransferCommand command = inbound.poll(); command != null; command = inbound.poll()) {
+            command.result.completeExceptionally(new IllegalStateException("Ledger stopped before applying the transfer."));
+        }
+    }
+
+    private void apply(TransferCommand command) {
+        try {
+            if (command.kind == TransferCommand.Kind.OPEN) {
+                register(command.destinationId, command.amountCents);
+                appliedCount = appliedCount + 1; // Só o writer escreve, então não precisa de incremento atômico
+                command.result.complete(null);
+                return;
+            }
+            validate(command);
+            command.dateTime = LocalDateTime.now();
+            if (journal != null) {
+                // Write-ahead: o registro vai para o journal antes de o saldo mudar; a confirmação espera o sync
+                journal.append(command);
+                move(command);
+                appliedCount = appliedCount + 1;
+                awaitingSync.add(command);
+            } else {
+                move(command);
+                appliedCount = appliedCount + 1;
+                persister.enqueue(command);
+                command.result.complete(null);
+            }
+        } catch (IOException e) {
+            command.result.completeExceptionally(new IllegalStateException("Ledger journal write failed: " + e.getMessage(), e));
+        } catch (RuntimeException e) {
+            command.result.completeExceptionally(e);
+        }
+    }
+
+    // Group commit: um único force() torna duráveis todas as transferências escritas desde o último sync
+    private void syncJournal() {
+        try {
+            journal.sync();
+        } catch (RuntimeException e) {
+            // Não dá para saber o que chegou ao disco: o ledger para e o replay decide na próxima inicialização
+            System.err.println("Ledger journal sync failed, stopping ledger: " + e.getMessage());
+            accepting = false;
+            running = false;
+            for (TransferCommand command : awaitingSync) {
+                command.result.completeExceptionally(new IllegalStateException("Ledger journal sync failed; transfer outcome unknown.", e));
+            }
+            awaitingSync.clear();
+            return;
+        }
+        for (TransferCommand command : awaitingSync) {
+            persister.enqueue(command);
+            command.result.complete(null);
+        }
+        awaitingSync.clear();
+    }
+
+    private void validate(TransferCommand command) {
+        if (!isKnown(command.originId)) {
+            throw new IllegalArgumentException("Origin account not found.");
+        }
+        boolean external = command.kind == TransferCommand.Kind.PIX && command.destinationId == TransferCommand.EXTERNAL_ACCOUNT;
+        if (!external && !isKnown(command.destinationId)) {
+            throw new IllegalArgumentException("Destination account not found.");
+        }
+        if (balances[(int) command.originId] < command.amountCents) {
+            throw new IllegalArgumentException("Insufficient balance in origin account.");
+        }
+    }
+
+    private void move(TransferCommand command) {
+        balances[(int) command.originId] -= command.amountCents;
+        if (command.destinationId != TransferCommand.EXTERNAL_ACCOUNT) {
+            balances[(int) command.destinationId] += command.amountCents;
+        }
+    }
+
+    private boolean isKnown(long accountId) {
+        return accountId >= 0 && accountId < known.length && known[(int) accountId];
+    }
+
+    private void register(long accountId, long cents) {
+        if (accountId < 0 || accountId > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Account id out of ledger range: " + accountId);
+        }
+        if (accountId >= balances.length) {
+            int newLength = (int) Math.min(Integer.MAX_VALUE - 8L, Math.max(accountId + 1, balances.length * 2L));
+            balances = Arrays.copyOf(balances, newLength);
+            known = Arrays.copyOf(known, newLength);
+        }
+        balances[(int) accountId] = cents;
+        known[(int) accountId] = true;
+    }
+
+    private static long toCents(BigDecimal value) {
+        return value.setScale(2, RoundingMode.UNNECESSARY).movePointRight(2).longValueExact();
+    }
+}
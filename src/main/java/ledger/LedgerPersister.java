@@ -0,0 +1,167 @@
+package ledger;
+
+import entities.Account;
+import entities.LedgerCheckpoint;
+import entities.PixTransaction;
+import entities.Transaction;
+import util.UnitOfWork;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Destino durável do ledger: grava em lotes as transferências já aplicadas em memória.
+// Cada lote é uma única transação no banco: os registros de Transaction e um UPDATE por conta
+// com a soma das variações de saldo do lote (em vez de um UPDATE por transferência).
+// Com journal, a mesma transação grava o LedgerCheckpoint (última sequência persistida), e os segmentos
+// do journal que ficaram totalmente para trás do checkpoint são apagados depois do commit.
+public class LedgerPersister {
+
+    private final BlockingQueue<TransferCommand> pending = new LinkedBlockingQueue<>();
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private volatile boolean running;
+    private Thread thread;
+    private Journal journal;
+
+    public LedgerPersister(int batchSize, long flushIntervalMillis) {
+        if (batchSize < 1 || flushIntervalMillis < 1) {
+            throw new IllegalArgumentException("batchSize and flushIntervalMillis must be positive.");
+        }
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    // Chamado pelo LedgerEngine ao ser criado
+    void attach(Journal journal) {
+        this.journal = journal;
+    }
+
+    // Última sequência do journal já gravada no banco (0 se nunca houve checkpoint)
+    long readCheckpoint() {
+        return UnitOfWork.read(em -> {
+            LedgerCheckpoint checkpoint = em.find(LedgerCheckpoint.class, LedgerCheckpoint.SINGLETON_ID);
+            return checkpoint == null ? 0L : checkpoint.getLastSequence();
+        });
+    }
+
+    void enqueue(TransferCommand command) {
+        pending.add(command);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::loop, "ledger-persister");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Para a thread depois de gravar tudo o que ainda estava pendente
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void loop() {
+        List<TransferCommand> batch = new ArrayList<>(batchSize);
+        while (running || !pending.isEmpty()) {
+            try {
+                TransferCommand first = pending.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch, batchSize - 1);
+                writeWithRetry(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void writeWithRetry(List<TransferCommand> batch) throws InterruptedException {
+        while (true) {
+            try {
+                write(batch);
+                return;
+            } catch (RuntimeException e) {
+                // O saldo em memória já mudou: o lote não pode ser descartado, então tenta de novo até o banco voltar
+                System.err.println("Error persisting ledger batch of " + batch.size() + " transfers: " + e.getMessage());
+                if (!running) {
+                    System.err.println(batch.size() + " ledger transfers were NOT persisted.");
+                    return;
+                }
+                Thread.sleep(flushIntervalMillis);
+            }
+        }
+    }
+
+    private void write(List<TransferCommand> batch) {
+        long lastSequence = batch.get(batch.size() - 1).sequence; // A fila mantém a ordem do journal
+        UnitOfWork.run(em -> {
+            Map<Long, Long> deltas = new HashMap<>();
+            for (TransferCommand command : batch) {
+                BigDecimal value = BigDecimal.valueOf(command.amountCents, 2);
+                boolean external = command.destinationId == TransferCommand.EXTERNAL_ACCOUNT;
+                // getReference evita um SELECT por conta: só a chave estrangeira é necessária
+                Account origin = em.getReference(Account.class, command.originId);
+                Account destination = external ? null : em.getReference(Account.class, command.destinationId);
+                if (command.kind == TransferCommand.Kind.PIX) {
+                    em.persist(new PixTransaction(command.pixKeyUsed, command.keyTypeUsed, value, command.dateTime,
+                            origin, destination, PixTransaction.PixTransactionStatus.COMPLETED));
+                } else {
+                    em.persist(new Transaction(command.typeTransaction, value, command.dateTime.toLocalDate(), origin, destination));
+                }
+                deltas.merge(command.originId, -command.amountCents, Long::sum);
+                if (!external) {
+                    deltas.merge(command.destinationId, command.amountCents, Long::sum);
+                }
+            }
+            for (Map.Entry<Long, Long> delta : deltas.entrySet()) {
+                if (delta.getValue() == 0) {
+                    continue;
+                }
+                em.createQuery("UPDATE Account a SET a.balance = a.balance + :delta, a.version = a.version + 1 WHERE a.id = :id")
+                        .setParameter("delta", BigDecimal.valueOf(delta.getValue(), 2))
+                        .setParameter("id", delta.getKey())
+                        .executeUpdate();
+            }
+            if (lastSequence > 0) {
+                LedgerCheckpoint checkpoint = em.find(LedgerCheckpoint.class, LedgerCheckpoint.SINGLETON_ID);
+                if (checkpoint == null) {
+                    em.persist(new LedgerCheckpoint(lastSequence));
+                } else if (lastSequence > checkpoint.getLastSequence()) {
+                    checkpoint.setLastSequence(lastSequence);
+                } else {
+                    // O checkpoint nunca volta: um valor menor faria o próximo replay reaplicar o que já está no banco
+                    System.err.println("Ledger checkpoint not moved back from " + checkpoint.getLastSequence()
+                            + " to " + lastSequence + ".");
+                }
+            }
+        });
+        if (journal != null && lastSequence > 0) {
+            journal.truncateUpTo(lastSequence);
+        }
+    }
+}
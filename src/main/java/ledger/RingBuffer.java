@@ -0,0 +1,67 @@
+package ledger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fila circular limitada, sem locks, para vários produtores e UM consumidor (o writer do ledger).
+// Cada posição tem um número de sequência que diz se ela está livre para o produtor ou pronta para o consumidor;
+// os produtores disputam a próxima posição com CAS no tail.
+final class RingBuffer<E> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // Só o consumidor lê/escreve
+
+    RingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two.");
+        }
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    // Retorna false se a fila estiver cheia
+    boolean offer(E element) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots[index] = element;
+                    sequences.set(index, pos + 1); // Publica o elemento para o consumidor
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get(); // Outro produtor pegou esta posição
+            }
+        }
+    }
+
+    // Chamado apenas pela thread consumidora. Retorna null se não houver elemento publicado.
+    @SuppressWarnings("unchecked")
+    E poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = (E) slots[index];
+        slots[index] = null;
+        sequences.set(index, head + mask + 1); // Libera a posição para a próxima volta
+        head++;
+        return element;
+    }
+
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+}
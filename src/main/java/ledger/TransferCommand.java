@@ -0,0 +1,47 @@
+package ledger;
+
+import entities.PixKey;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+// Comando enfileirado no ring buffer. Depois de aplicado pelo writer, uma transferência segue
+// para o LedgerPersister, que grava a Transaction (ou PixTransaction) correspondente no banco.
+final class TransferCommand {
+
+    enum Kind {
+        TRANSFER, // Move amountCents de originId para destinationId (vira uma Transaction)
+        PIX,      // Pix: debita originId e credita destinationId se for interna (0 = conta externa)
+        OPEN      // Registra a conta destinationId no ledger com saldo amountCents (nada é gravado no banco)
+    }
+
+    static final long EXTERNAL_ACCOUNT = 0L;
+
+    final Kind kind;
+    final long originId;
+    final long destinationId;
+    final long amountCents;
+    final String typeTransaction;      // Só TRANSFER
+    final String pixKeyUsed;           // Só PIX
+    final PixKey.PixKeyType keyTypeUsed; // Só PIX
+    final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    // Definidos pelo writer no momento em que o comando é aplicado (ou pelo replay do journal)
+    LocalDateTime dateTime;
+    long sequence; // Posição no journal (0 quando o ledger roda sem journal)
+
+    TransferCommand(Kind kind, long originId, long destinationId, long amountCents, String typeTransaction) {
+        this(kind, originId, destinationId, amountCents, typeTransaction, null, null);
+    }
+
+    TransferCommand(Kind kind, long originId, long destinationId, long amountCents, String typeTransaction,
+                    String pixKeyUsed, PixKey.PixKeyType keyTypeUsed) {
+        this.kind = kind;
+        this.originId = originId;
+        this.destinationId = destinationId;
+        this.amountCents = amountCents;
+        this.typeTransaction = typeTransaction;
+        this.pixKeyUsed = pixKeyUsed;
+        this.keyTypeUsed = keyTypeUsed;
+    }
+}
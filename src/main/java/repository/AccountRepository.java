@@ -1,10 +1,10 @@
 package repository;
 
+import dto.AccountSummary;
 import entities.Account;
 import interfaces.IAccountRepository;
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
-import util.JPAUtil;
+import util.UnitOfWork;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,11 +13,12 @@ public class AccountRepository implements IAccountRepository {
 
     @Override
     public Optional<Account> getByAccountNumber(String accountNumber) {
-        try (EntityManager em = JPAUtil.getEntityManager()) { // Uso de try-with-resources é bom
-            Account account = em.createQuery(
-                            "SELECT a FROM Account a WHERE a.accountNumber = :accountNumber", Account.class)
+        try {
+            // Dentro de uma UnitOfWork a conta volta gerenciada pelo mesmo EntityManager dos outros repositórios
+            Account account = UnitOfWork.read(em -> em.createQuery(
+                            "SELECT a FROM Account a JOIN FETCH a.client WHERE a.accountNumber = :accountNumber", Account.class)
                     .setParameter("accountNumber", accountNumber)
-                    .getSingleResult();
+                    .getSingleResult());
             return Optional.of(account);
         } catch (NoResultException e) {
             return Optional.empty();
@@ -29,18 +30,26 @@ public class AccountRepository implements IAccountRepository {
 
     @Override
     public List<Account> getAll() {
-        EntityManager em = null; // Declarar fora do try para o finally
         try {
-            em = JPAUtil.getEntityManager();
-            List<Account> accounts = em.createQuery("SELECT a FROM Account a", Account.class).getResultList();
-            return accounts;
+            return UnitOfWork.read(em -> em.createQuery("SELECT a FROM Account a JOIN FETCH a.client", Account.class).getResultList());
         } catch (Exception e) { // Capturar exceções genéricas
             System.err.println("Error getting all accounts: " + e.getMessage());
             return List.of(); // Retornar lista vazia em caso de erro
-        } finally {
-            if (em != null) {
-                em.close(); // Fechar o EntityManager no finally
-            }
         }
     }
-}
\ No newline at end of file
+
+    // Só as colunas da listagem, sem hidratar as entidades (ver dto.AccountSummary)
+    @Override
+    public List<AccountSummary> getAllSummaries() {
+        try {
+            return UnitOfWork.read(em -> em.createQuery(
+                    "SELECT new dto.AccountSummary(a.id, a.accountNumber,"
+                            + " CASE WHEN TYPE(a) = SavingsAccount THEN 'SAVINGS' ELSE 'CURRENT' END,"
+                            + " a.balance, c.name, c.cpf)"
+                            + " FROM Account a JOIN a.client c ORDER BY a.accountNumber", AccountSummary.class).getResultList());
+        } catch (Exception e) {
+            System.err.println("Error getting account summaries: " + e.getMessage());
+            return List.of();
+        }
+    }
+}
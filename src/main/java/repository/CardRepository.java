@@ -1,11 +1,11 @@
 package repository;
 
+import dto.CardSummary;
 import entities.Card;
 import interfaces.ICardRepository;
 
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
-import util.JPAUtil;
+import util.UnitOfWork;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,30 +14,19 @@ public class CardRepository implements ICardRepository<Card> {
 
     @Override
     public void create(Card card) {
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-            em.persist(card);
-            em.getTransaction().commit();
+            UnitOfWork.write(em -> em.persist(card));
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             System.err.println("Error creating card: " + e.getMessage());
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 
     @Override
     public Optional<Card> getByCardNumber(String cardNumber) { // Alterado de long para String
-        try (EntityManager em = JPAUtil.getEntityManager()) {
-            Card card = em.createQuery("SELECT c FROM Card c WHERE c.cardNumber = :cardNumber", Card.class)
+        try {
+            Card card = UnitOfWork.read(em -> em.createQuery("SELECT c FROM Card c JOIN FETCH c.account WHERE c.cardNumber = :cardNumber", Card.class)
                     .setParameter("cardNumber", cardNumber)
-                    .getSingleResult();
+                    .getSingleResult());
             return Optional.of(card);
         } catch (NoResultException e) {
             return Optional.empty();
@@ -49,67 +38,50 @@ public class CardRepository implements ICardRepository<Card> {
 
     @Override
     public List<Card> getAll() {
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            List<Card> cards = em.createQuery("SELECT c FROM Card c", Card.class).getResultList();
-            return cards;
+            return UnitOfWork.read(em -> em.createQuery("SELECT c FROM Card c JOIN FETCH c.account", Card.class).getResultList());
         } catch (Exception e) {
             System.err.println("Error getting all cards: " + e.getMessage());
             return List.of();
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 
     @Override
     public void update(Card card) {
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-            em.merge(card);
-            em.getTransaction().commit();
+            UnitOfWork.write(em -> em.merge(card));
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             System.err.println("Error updating card: " + e.getMessage());
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 
     @Override
     public void delete(String cardNumber) { // Alterado de long para String
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-            Card card = em.createQuery("SELECT c FROM Card c WHERE c.cardNumber = :cardNumber", Card.class)
-                    .setParameter("cardNumber", cardNumber)
-                    .getSingleResult();
-            em.remove(card);
-            em.getTransaction().commit();
+            UnitOfWork.write(em -> {
+                Card card = em.createQuery("SELECT c FROM Card c WHERE c.cardNumber = :cardNumber", Card.class)
+                        .setParameter("cardNumber", cardNumber)
+                        .getSingleResult();
+                em.remove(card);
+            });
         } catch (NoResultException e) {
             System.out.println("Card not found for deletion (number: " + cardNumber + ").");
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             e.printStackTrace();
             System.err.println("Error deleting card (number: " + cardNumber + "): " + e.getMessage());
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
-}
\ No newline at end of file
+
+    // Só as colunas da listagem, sem hidratar as entidades (ver dto.CardSummary)
+    @Override
+    public List<CardSummary> getAllSummaries() {
+        try {
+            return UnitOfWork.read(em -> em.createQuery(
+                    "SELECT new dto.CardSummary(c.id, c.cardNumber, c.validity, c.cardType, c.creditLimit, a.accountNumber)"
+                            + " FROM Card c JOIN c.account a ORDER BY c.cardNumber", CardSummary.class).getResultList());
+        } catch (Exception e) {
+            System.err.println("Error getting card summaries: " + e.getMessage());
+            return List.of();
+        }
+    }
+}
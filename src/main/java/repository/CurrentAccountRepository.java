@@ -1,10 +1,10 @@
 package repository;
 
+import dto.AccountSummary;
 import entities.CurrentAccount;
 import interfaces.ICurrentAccountRepository;
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
-import util.JPAUtil;
+import util.UnitOfWork;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,104 +13,75 @@ public class CurrentAccountRepository implements ICurrentAccountRepository {
 
     @Override
     public void create(CurrentAccount conta) {
-        // Correção: Garantir que o EntityManager seja fechado no finally
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-            em.persist(conta);
-            em.getTransaction().commit();
+            UnitOfWork.write(em -> em.persist(conta));
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             // Para o contexto de "sem erros", apenas imprimir. Em produção, lançar ou logar.
             System.err.println("Error creating CurrentAccount: " + e.getMessage());
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 
     @Override
     public Optional<CurrentAccount> getByAccountNumber(String accountNumber) {
-        // Já usa try-finally, está correto
-        EntityManager em = JPAUtil.getEntityManager();
         try {
-            CurrentAccount account = em.createQuery(
-                            "SELECT c FROM CurrentAccount c WHERE c.accountNumber = :accountNumber", CurrentAccount.class)
+            CurrentAccount account = UnitOfWork.read(em -> em.createQuery(
+                            "SELECT c FROM CurrentAccount c JOIN FETCH c.client WHERE c.accountNumber = :accountNumber", CurrentAccount.class)
                     .setParameter("accountNumber", accountNumber)
-                    .getSingleResult();
+                    .getSingleResult());
             return Optional.of(account);
         } catch (NoResultException e) {
             return Optional.empty();
-        } finally {
-            em.close();
         }
     }
 
     @Override
     public List<CurrentAccount> getAll() {
-        // Correção: Garantir que o EntityManager seja fechado no finally
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            List<CurrentAccount> accounts = em.createQuery("SELECT c FROM CurrentAccount c", CurrentAccount.class).getResultList();
-            return accounts;
+            return UnitOfWork.read(em -> em.createQuery("SELECT c FROM CurrentAccount c JOIN FETCH c.client", CurrentAccount.class).getResultList());
         } catch (Exception e) {
             System.err.println("Error getting all CurrentAccounts: " + e.getMessage());
             return List.of(); // Retornar lista vazia em caso de erro
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 
     @Override
     public void update(CurrentAccount account) {
-        // Correção: Agora este update deve gerenciar sua própria transação e EM.
-        // O serviço de transferência faz o merge diretamente.
-        // Este update serve para outras operações que atualizem uma CurrentAccount isoladamente.
-        EntityManager em = null;
+        // Este update serve para operações que atualizem uma CurrentAccount isoladamente;
+        // dentro de uma UnitOfWork ele apenas participa da transação do serviço.
         try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-            em.merge(account);
-            em.getTransaction().commit();
+            UnitOfWork.write(em -> em.merge(account));
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             System.err.println("Error updating CurrentAccount: " + e.getMessage());
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 
     @Override
     public void delete(String accountNumber) {
-        // Já usa try-catch-finally, está correto
-        EntityManager em = JPAUtil.getEntityManager();
         try {
-            em.getTransaction().begin();
-            CurrentAccount account = em.createQuery(
-                            "SELECT c FROM CurrentAccount c WHERE c.accountNumber = :accountNumber", CurrentAccount.class)
-                    .setParameter("accountNumber", accountNumber)
-                    .getSingleResult();
-            em.remove(account);
-            em.getTransaction().commit();
+            UnitOfWork.write(em -> {
+                CurrentAccount account = em.createQuery(
+                                "SELECT c FROM CurrentAccount c WHERE c.accountNumber = :accountNumber", CurrentAccount.class)
+                        .setParameter("accountNumber", accountNumber)
+                        .getSingleResult();
+                em.remove(account);
+            });
         } catch (NoResultException e) {
             System.out.println("Current account not found.");
-            em.getTransaction().rollback();
         } catch (Exception e) {
             e.printStackTrace();
-            em.getTransaction().rollback();
-        } finally {
-            em.close();
         }
     }
-}
\ No newline at end of file
+
+    // Só as colunas da listagem, sem hidratar as entidades (ver dto.AccountSummary)
+    @Override
+    public List<AccountSummary> getAllSummaries() {
+        try {
+            return UnitOfWork.read(em -> em.createQuery(
+                    "SELECT new dto.AccountSummary(a.id, a.accountNumber, 'CURRENT', a.balance, c.name, c.cpf)"
+                            + " FROM CurrentAccount a JOIN a.client c ORDER BY a.accountNumber", AccountSummary.class).getResultList());
+        } catch (Exception e) {
+            System.err.println("Error getting CurrentAccount summaries: " + e.getMessage());
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package repository;
+
+import entities.IdempotencyRecord;
+import interfaces.IIdempotencyRepository;
+import jakarta.persistence.EntityExistsException;
+import org.hibernate.exception.ConstraintViolationException;
+import util.CacheMetrics;
+import util.RecentKeyIndex;
+import util.UnitOfWork;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Optional;
+
+public class IdempotencyRepository implements IIdempotencyRepository {
+
+    public static final int DEFAULT_INDEX_SIZE = 100_000;
+    public static final long DEFAULT_INDEX_WINDOW_MILLIS = 10 * 60 * 1000; // As repetições por timeout chegam em segundos
+    public static final int DEFAULT_INDEX_BUCKETS = 10;
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
+    // Chaves confirmadas recentemente: a repetição de um pedido é respondida sem ir ao banco.
+    // Só entram registros já confirmados; os registros guardados são desanexados e não mudam depois do commit.
+    private final RecentKeyIndex<String, IdempotencyRecord> recentKeys;
+
+    public IdempotencyRepository() {
+        this(DEFAULT_INDEX_SIZE, DEFAULT_INDEX_WINDOW_MILLIS, DEFAULT_INDEX_BUCKETS);
+    }
+
+    public IdempotencyRepository(int indexSize, long indexWindowMillis, int indexBuckets) {
+        this.recentKeys = new RecentKeyIndex<>("idempotency-keys", indexSize, indexWindowMillis, indexBuckets);
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> findByKey(String key) {
+        Optional<IdempotencyRecord> recent = recentKeys.get(key);
+        if (recent.isPresent()) {
+            return recent;
+        }
+        try {
+            // Pedido repetido depois de a chave sair da memória, ou atendido antes por outra instância da aplicação
+            IdempotencyRecord stored = UnitOfWork.read(em -> em.find(IdempotencyRecord.class, key));
+            if (stored != null) {
+                recentKeys.put(key, stored);
+            }
+            return Optional.ofNullable(stored);
+        } catch (Exception e) {
+            System.err.println("Error finding idempotency key: " + e.getMessage());
+            throw e; // Sem saber se a chave existe não dá para decidir se a operação pode rodar
+        }
+    }
+
+    // O flush grava a chave já no início da transação: um pedido igual em paralelo fica esperando o lock da chave
+    // primária e, quando o primeiro confirma, recebe erro de chave duplicada sem ter tocado em nenhum saldo.
+    @Override
+    public void reserve(IdempotencyRecord record) {
+        UnitOfWork.write(em -> {
+            em.persist(record);
+            em.flush();
+        });
+    }
+
+    @Override
+    public void remember(IdempotencyRecord record) {
+        recentKeys.put(record.getKey(), record);
+    }
+
+    @Override
+    public int deleteOlderThan(LocalDateTime cutoff) {
+        // As chaves apagadas podem continuar no índice até sair da janela; a janela é bem menor que a retenção
+        return UnitOfWork.execute(em -> em.createQuery("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+                .setParameter("cutoff", cutoff)
+                .executeUpdate());
+    }
+
+    @Override
+    public CacheMetrics getIndexMetrics() {
+        return recentKeys.getMetrics();
+    }
+
+    // Percorre as causas: no flush ou no commit o erro do banco vem embrulhado em PersistenceException/RollbackException.
+    // Só vale a chave primária de idempotency_keys: outra violação na mesma unidade (ex: chave estrangeira de uma
+    // conta apagada no meio da transferência) é erro da operação e não pode virar "pedido repetido".
+    public static boolean isDuplicateKey(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException violation && isIdempotencyKeyViolation(violation)) {
+                return true;
+            }
+            // persist de uma chave já presente no contexto de persistência, antes de chegar ao banco
+            if (t instanceof EntityExistsException && String.valueOf(t.getMessage()).contains(IdempotencyRecord.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Chave duplicada (MySQL 1062 ou SQLState 23505) na tabela das chaves. O nome extraído pelo dialeto traz a tabela:
+    // "idempotency_keys.PRIMARY" no MySQL 8, "PUBLIC.PRIMARY_KEY_x ON PUBLIC.IDEMPOTENCY_KEYS(...)" no H2
+    private static boolean isIdempotencyKeyViolation(ConstraintViolationException violation) {
+        boolean duplicate = violation.getErrorCode() == MYSQL_DUPLICATE_ENTRY || UNIQUE_VIOLATION_SQL_STATE.equals(violation.getSQLState());
+        String constraint = violation.getConstraintName();
+        return duplicate && constraint != null && constraint.toLowerCase(Locale.ROOT).contains(IdempotencyRecord.TABLE);
+    }
+}
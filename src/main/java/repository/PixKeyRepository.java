@@ -5,125 +5,241 @@ import interfaces.IPixKeyRepository;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException; // Para getSingleResult
 import jakarta.persistence.TypedQuery;
-import util.JPAUtil; // Importar JPAUtil
+import util.BloomFilter;
+import util.CacheMetrics;
+import util.JPAUtil;
+import util.LruCache;
+import util.UnitOfWork;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 public class PixKeyRepository implements IPixKeyRepository {
 
-    // Remover o EntityManager injetado no construtor.
-    // private final EntityManager entityManager;
-    // public PixKeyRepository(EntityManager entityManager) { this.entityManager = entityManager; }
+    public static final int DEFAULT_CACHE_SIZE = 10_000;
+    public static final long DEFAULT_CACHE_TTL_MILLIS = 5 * 60 * 1000;
+    public static final double DEFAULT_KEY_FILTER_FPP = 0.01;
+    private static final long MIN_KEY_FILTER_CAPACITY = 1024;
 
-    // Construtor vazio ou padrão, se não precisar de outras dependências.
-    public PixKeyRepository() {}
+    // Cache de findByKeyValue (a consulta mais frequente do Pix). Create/update/delete invalidam a chave
+    // antes e depois da escrita, então uma chave alterada nunca continua apontando para a conta antiga.
+    // As PixKeys guardadas são instâncias desanexadas compartilhadas entre threads: só para leitura.
+    private final LruCache<String, PixKey> keyCache;
+
+    // Filtro de Bloom com todos os keyValue existentes, consultado antes do cache: a maior parte do volume é para
+    // chaves externas, e "com certeza não existe" dispensa o banco. Toda chave entra no filtro ANTES de ser gravada,
+    // então nunca há falso negativo para uma chave que já está no banco. Remoções não apagam bits (só geram
+    // falsos positivos, que caem no cache/banco); quando acumulam, ou quando o filtro enche, ele é reconstruído.
+    private final double keyFilterFpp;
+    private volatile BloomFilter keyFilter; // null até rebuildKeyFilter(): sem filtro toda busca segue para o cache
+    private final Object keyFilterLock = new Object();
+    private final Set<String> keysBeingWritten = ConcurrentHashMap.newKeySet();
+    private List<String> addedDuringRebuild; // Protegido por keyFilterLock; != null enquanto há reconstrução
+    private final AtomicLong keyFilterSkips = new AtomicLong();
+    private final AtomicLong deletesSinceRebuild = new AtomicLong();
+
+    // O EntityManager vem da UnitOfWork ativa (ou de um EntityManager próprio por operação).
+    public PixKeyRepository() {
+        this(DEFAULT_CACHE_SIZE, DEFAULT_CACHE_TTL_MILLIS, DEFAULT_KEY_FILTER_FPP);
+    }
+
+    public PixKeyRepository(int cacheSize, long cacheTtlMillis) {
+        this(cacheSize, cacheTtlMillis, DEFAULT_KEY_FILTER_FPP);
+    }
+
+    public PixKeyRepository(int cacheSize, long cacheTtlMillis, double keyFilterFalsePositiveRate) {
+        if (keyFilterFalsePositiveRate <= 0 || keyFilterFalsePositiveRate >= 1) {
+            throw new IllegalArgumentException("keyFilterFalsePositiveRate must be between 0 and 1.");
+        }
+        this.keyCache = new LruCache<>("pix-keys", cacheSize, cacheTtlMillis);
+        this.keyFilterFpp = keyFilterFalsePositiveRate;
+    }
+
+    // Carrega todos os keyValue do banco em um filtro novo e troca o atual. Chamado na inicialização
+    // e automaticamente quando o filtro enche ou acumula remoções.
+    public void rebuildKeyFilter() {
+        synchronized (keyFilterLock) {
+            if (addedDuringRebuild != null) {
+                return; // Outra thread já está reconstruindo
+            }
+            // Chaves com gravação em andamento podem não aparecer na consulta abaixo
+            addedDuringRebuild = new ArrayList<>(keysBeingWritten);
+        }
+        try {
+            BloomFilter fresh;
+            try (EntityManager em = JPAUtil.getEntityManager()) {
+                long count = em.createQuery("SELECT COUNT(p) FROM PixKey p", Long.class).getSingleResult();
+                // Folga para crescer até o dobro antes da próxima reconstrução
+                fresh = BloomFilter.create(Math.max(MIN_KEY_FILTER_CAPACITY, count * 2), keyFilterFpp);
+                try (Stream<String> values = em.createQuery("SELECT p.keyValue FROM PixKey p", String.class).getResultStream()) {
+                    values.forEach(fresh::put);
+                }
+            }
+            synchronized (keyFilterLock) {
+                addedDuringRebuild.forEach(fresh::put);
+                keyFilter = fresh;
+                deletesSinceRebuild.set(0);
+            }
+        } catch (Exception e) {
+            System.err.println("Error rebuilding PixKey filter: " + e.getMessage());
+        } finally {
+            synchronized (keyFilterLock) {
+                addedDuringRebuild = null;
+            }
+        }
+    }
+
+    // Tamanho, memória ocupada e taxa de falso positivo do filtro, mais as buscas que ele evitou
+    public String getKeyFilterReport() {
+        BloomFilter filter = keyFilter;
+        if (filter == null) {
+            return "PixKey filter not built.";
+        }
+        return filter + ", skippedLookups=" + keyFilterSkips.get() + ", deletesSinceRebuild=" + deletesSinceRebuild.get();
+    }
+
+    // Registra a chave no filtro antes da gravação (e a marca como "em gravação" até terminar)
+    private void addToKeyFilter(String keyValue) {
+        synchronized (keyFilterLock) {
+            keysBeingWritten.add(keyValue);
+            BloomFilter filter = keyFilter;
+            if (filter != null) {
+                filter.put(keyValue);
+            }
+            if (addedDuringRebuild != null) {
+                addedDuringRebuild.add(keyValue);
+            }
+        }
+    }
+
+    private void keyWriteFinished(String keyValue) {
+        keysBeingWritten.remove(keyValue);
+        BloomFilter filter = keyFilter;
+        if (filter != null && filter.getInsertions() > filter.getExpectedInsertions()) {
+            rebuildKeyFilter(); // Acima da capacidade a taxa de falso positivo sobe
+        }
+    }
+
+    public CacheMetrics getCacheMetrics() {
+        return keyCache.getMetrics();
+    }
 
     @Override
     public void create(PixKey pixKey) {
-        EntityManager em = null;
+        String keyValue = pixKey.getKeyValue();
         try {
-            em = JPAUtil.getEntityManager(); // Obter EM para cada operação
-            em.getTransaction().begin();
-            em.persist(pixKey);
-            em.getTransaction().commit();
+            addToKeyFilter(keyValue);
+            keyCache.invalidate(keyValue); // Pode haver um "não existe" em cache para esta chave
+            UnitOfWork.write(em -> em.persist(pixKey));
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             System.err.println("Error creating PixKey: " + e.getMessage());
             throw new RuntimeException("Failed to create PixKey", e); // Relançar para o serviço
         } finally {
-            if (em != null) {
-                em.close(); // Fechar EM
-            }
+            keyCache.invalidate(keyValue);
+            keyWriteFinished(keyValue);
         }
     }
 
     @Override
     public Optional<PixKey> findByKeyValue(String keyValue) {
-        // Usar try-with-resources para garantir o fechamento do EM
+        BloomFilter filter = keyFilter;
+        if (filter != null && keyValue != null && !filter.mightContain(keyValue)) {
+            keyFilterSkips.incrementAndGet();
+            return Optional.empty(); // Com certeza não existe: nem cache nem banco
+        }
+        try {
+            return keyCache.get(keyValue, this::loadByKeyValue);
+        } catch (Exception e) {
+            // Erros não ficam em cache: a próxima busca tenta o banco de novo
+            System.err.println("Error finding PixKey by value: " + e.getMessage());
+            return Optional.empty(); // Outros erros também resultam em Optional.empty()
+        }
+    }
+
+    // Carrega em um EntityManager próprio: a instância vai para o cache desanexada, sem pertencer
+    // à UnitOfWork de quem causou o miss
+    private Optional<PixKey> loadByKeyValue(String keyValue) {
         try (EntityManager em = JPAUtil.getEntityManager()) {
-            TypedQuery<PixKey> query = em.createQuery( // Usar 'em' obtido
-                    "SELECT p FROM PixKey p WHERE p.keyValue = :keyValue", PixKey.class);
+            TypedQuery<PixKey> query = em.createQuery(
+                    "SELECT p FROM PixKey p JOIN FETCH p.account WHERE p.keyValue = :keyValue", PixKey.class);
             query.setParameter("keyValue", keyValue);
             // Usar getSingleResult para unicidade e tratar NoResultException
             return Optional.of(query.getSingleResult());
         } catch (NoResultException e) {
             return Optional.empty(); // Chave não encontrada
-        } catch (Exception e) {
-            System.err.println("Error finding PixKey by value: " + e.getMessage());
-            return Optional.empty(); // Outros erros também resultam em Optional.empty()
         }
     }
 
     @Override
     public List<PixKey> findAllByAccount(Long accountId) {
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager(); // Obter EM
-            TypedQuery<PixKey> query = em.createQuery(
-                    "SELECT p FROM PixKey p WHERE p.account.id = :accountId", PixKey.class);
-            query.setParameter("accountId", accountId);
-            return query.getResultList();
+            return UnitOfWork.read(em -> em.createQuery(
+                            "SELECT p FROM PixKey p JOIN FETCH p.account WHERE p.account.id = :accountId", PixKey.class)
+                    .setParameter("accountId", accountId)
+                    .getResultList());
         } catch (Exception e) {
             System.err.println("Error finding PixKeys by account: " + e.getMessage());
             return List.of(); // Retornar lista vazia em caso de erro
-        } finally {
-            if (em != null) {
-                em.close(); // Fechar EM
-            }
         }
     }
 
     // Implementação dos métodos sugeridos (update e delete)
     @Override
     public void update(PixKey pixKey) {
-        EntityManager em = null;
+        String keyValue = pixKey.getKeyValue();
         try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-            em.merge(pixKey); // Merge para atualizar uma entidade
-            em.getTransaction().commit();
+            addToKeyFilter(keyValue); // O valor pode ter mudado: o novo precisa estar no filtro antes do commit
+            invalidate(pixKey);
+            UnitOfWork.write(em -> em.merge(pixKey)); // Merge para atualizar uma entidade
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             System.err.println("Error updating PixKey: " + e.getMessage());
             throw new RuntimeException("Failed to update PixKey", e);
         } finally {
-            if (em != null) {
-                em.close();
-            }
+            invalidate(pixKey);
+            keyWriteFinished(keyValue);
+        }
+    }
+
+    // O valor da chave pode ter mudado: remove também a entrada antiga, achada pelo id
+    private void invalidate(PixKey pixKey) {
+        keyCache.invalidate(pixKey.getKeyValue());
+        if (pixKey.getId() != null) {
+            keyCache.invalidateIf(cached -> pixKey.getId().equals(cached.getId()));
         }
     }
 
     @Override
     public void delete(String keyValue) {
-        EntityManager em = null;
+        keyCache.invalidate(keyValue);
         try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-            PixKey pixKey = em.createQuery("SELECT p FROM PixKey p WHERE p.keyValue = :keyValue", PixKey.class)
-                    .setParameter("keyValue", keyValue)
-                    .getSingleResult(); // Buscar a chave para deletar
-            em.remove(pixKey);
-            em.getTransaction().commit();
+            UnitOfWork.write(em -> {
+                PixKey pixKey = em.createQuery("SELECT p FROM PixKey p WHERE p.keyValue = :keyValue", PixKey.class)
+                        .setParameter("keyValue", keyValue)
+                        .getSingleResult(); // Buscar a chave para deletar
+                em.remove(pixKey);
+            });
         } catch (NoResultException e) {
             System.out.println("PixKey with value " + keyValue + " not found for deletion.");
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             System.err.println("Error deleting PixKey (value: " + keyValue + "): " + e.getMessage());
             throw new RuntimeException("Failed to delete PixKey", e);
         } finally {
-            if (em != null) {
-                em.close();
-            }
+            keyCache.invalidate(keyValue);
+            keyDeleted();
+        }
+    }
+
+    // Bits de chaves removidas continuam ligados; passado um quarto das inserções, o filtro é refeito
+    private void keyDeleted() {
+        BloomFilter filter = keyFilter;
+        long deletes = deletesSinceRebuild.incrementAndGet();
+        if (filter != null && deletes > Math.max(MIN_KEY_FILTER_CAPACITY / 4, filter.getInsertions() / 4)) {
+            rebuildKeyFilter();
         }
     }
-}
\ No newline at end of file
+}
@@ -1,136 +1,183 @@
 package repository;
 
 import entities.Account; // Para manipular saldos das contas
+import dto.PixSettlementRequest;
 import entities.PixTransaction;
 import interfaces.IPixTransactionRepository;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.NoResultException;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.TypedQuery;
-import util.JPAUtil; // Importar JPAUtil
+import org.hibernate.jpa.SpecHints;
+import util.StreamingQuery;
+import util.UnitOfWork;
 
-import java.math.BigDecimal; // Para manipular saldos com BigDecimal
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class PixTransactionRepository implements IPixTransactionRepository {
 
-    // Remover o EntityManager injetado no construtor.
-    // private final EntityManager entityManager;
-    // public PixTransactionRepository(EntityManager entityManager) { this.entityManager = entityManager; }
+    private final TransferEngine transferEngine;
 
-    public PixTransactionRepository() {} // Construtor padrão
+    // O EntityManager vem da UnitOfWork ativa (ou de um EntityManager próprio por operação).
+    public PixTransactionRepository(TransferEngine transferEngine) {
+        this.transferEngine = transferEngine;
+    }
 
     @Override
-    public void create(PixTransaction pixTransaction) {
-        EntityManager em = null;
+    public PixTransaction create(PixTransaction pixTransaction) {
         try {
-            em = JPAUtil.getEntityManager(); // Obter EM para cada operação
-            em.getTransaction().begin();
-
-            // 1. Buscar as contas de origem e destino (gerenciadas pelo EM atual)
-            // É crucial que estas contas sejam as entidades persistidas e não "detached"
-            Account originAccount = em.find(Account.class, pixTransaction.getOriginAccount().getId());
-            // A conta de destino pode não estar no nosso sistema (ex: outro banco),
-            // mas se for uma conta interna, precisamos do objeto.
-            Account destinationAccount = null;
-            if (pixTransaction.getDestinationAccount() != null && pixTransaction.getDestinationAccount().getId() != null) {
-                destinationAccount = em.find(Account.class, pixTransaction.getDestinationAccount().getId());
-            }
-
-            // 2. Validações (algumas podem estar no serviço, mas a de saldo é crítica aqui)
-            if (originAccount == null) {
-                throw new IllegalArgumentException("Origin account not found.");
-            }
-            // Se a transação for para uma conta interna, verificar se ela existe
-            if (pixTransaction.getDestinationAccount() != null && destinationAccount == null) {
-                throw new IllegalArgumentException("Internal destination account not found.");
-            }
-
-            // 3. Lógica de Débito e Crédito de Saldo (CRUCIAL para atomicidade)
-            if (originAccount.getBalance().compareTo(pixTransaction.getValue()) < 0) {
-                throw new IllegalArgumentException("Insufficient balance in origin account.");
-            }
-
-            originAccount.setBalance(originAccount.getBalance().subtract(pixTransaction.getValue())); // Débito
-            if (destinationAccount != null) { // Apenas credita se a conta de destino for interna
-                destinationAccount.setBalance(destinationAccount.getBalance().add(pixTransaction.getValue())); // Crédito
-                em.merge(destinationAccount); // Sincroniza conta de destino
-            }
-            em.merge(originAccount); // Sincroniza conta de origem
-
-            // 4. Persistir a PixTransaction (Registro da transação)
-            em.persist(pixTransaction);
-
-            // 5. Definir status da transação como COMPLETED se tudo ocorreu bem
-            pixTransaction.setStatus(PixTransaction.PixTransactionStatus.COMPLETED);
-
-            em.getTransaction().commit(); // Commit da transação (débito, crédito e registro)
+            return transferEngine.execute(em -> {
+                // 1. Bloquear as contas (ordem de id) e aplicar débito/crédito.
+                // A conta de destino pode não estar no nosso sistema (ex: outro banco): nesse caso só há débito.
+                Account[] locked = transferEngine.move(em, pixTransaction.getOriginAccount(), pixTransaction.getDestinationAccount(), pixTransaction.getValue());
+
+                // 2. Persistir uma cópia já COMPLETED: numa repetição o objeto do chamador não leva o id da tentativa desfeita
+                PixTransaction persisted = copyOf(pixTransaction, locked[0], locked[1], PixTransaction.PixTransactionStatus.COMPLETED);
+                em.persist(persisted);
+                return persisted;
+            });
         } catch (RuntimeException e) { // Captura IllegalArgumentException e outras RuntimeExceptions
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback(); // Rollback em caso de erro
-            }
-            // Se houver um erro, a transação falhou
+            // Se houver um erro, a transação falhou (o rollback já foi feito ou marcado pela UnitOfWork)
             if (pixTransaction != null) {
                 pixTransaction.setStatus(PixTransaction.PixTransactionStatus.FAILED);
-                // Opcional: tentar fazer um merge para persistir o status FAILED, mas isso criaria uma nova transação ou exigiria um novo EM.
-                // Para este nível, o rollback já desfaz a criação do registro, mas o status FAILED seria útil se o registro fosse persistido antes do débito/crédito.
                 // Por simplicidade, assumimos que o registro só é persistido se a transação for bem-sucedida.
             }
             System.err.println("PixTransaction creation failed: " + e.getMessage());
             throw e; // Relançar para a camada de serviço
-        } catch (Exception e) { // Captura outras exceções inesperadas
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
+        }
+    }
+
+    // Primeira etapa do Pix para outro banco (ver PixSettlementPipeline): só debita a origem e grava PENDING.
+    // O valor fica reservado até o gateway responder; a conclusão ou o estorno vêm depois, em lote.
+    @Override
+    public PixTransaction reserve(PixTransaction pixTransaction) {
+        if (pixTransaction.getDestinationAccount() != null) {
+            throw new IllegalArgumentException("Only Pix transfers to external keys are settled asynchronously.");
+        }
+        try {
+            return transferEngine.execute(em -> {
+                Account[] locked = transferEngine.move(em, pixTransaction.getOriginAccount(), null, pixTransaction.getValue());
+                PixTransaction persisted = copyOf(pixTransaction, locked[0], null, PixTransaction.PixTransactionStatus.PENDING);
+                em.persist(persisted);
+                return persisted;
+            });
+        } catch (RuntimeException e) {
+            System.err.println("PixTransaction reservation failed: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    // Pendentes de liquidação aceitas antes de acceptedBefore, em ordem de id (índice status, id)
+    @Override
+    public List<PixSettlementRequest> findPendingSettlements(LocalDateTime acceptedBefore, int limit) {
+        return UnitOfWork.read(em -> em.createQuery(
+                        "SELECT new dto.PixSettlementRequest(pt.id, o.accountNumber, pt.pixKeyUsed, pt.keyTypeUsed, pt.value, pt.dateTime)"
+                                + " FROM PixTransaction pt JOIN pt.originAccount o"
+                                + " WHERE pt.status = :status AND pt.destinationAccount IS NULL AND pt.dateTime < :acceptedBefore"
+                                + " ORDER BY pt.id", PixSettlementRequest.class)
+                .setParameter("status", PixTransaction.PixTransactionStatus.PENDING)
+                .setParameter("acceptedBefore", acceptedBefore)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    // Um único UPDATE para o lote. Só muda o que ainda está PENDING: repetir o mesmo lote não tem efeito.
+    @Override
+    public int markCompleted(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return UnitOfWork.execute(em -> em.createQuery(
+                        "UPDATE PixTransaction pt SET pt.status = :completed WHERE pt.id IN :ids AND pt.status = :pending")
+                .setParameter("completed", PixTransaction.PixTransactionStatus.COMPLETED)
+                .setParameter("pending", PixTransaction.PixTransactionStatus.PENDING)
+                .setParameter("ids", ids)
+                .executeUpdate());
+    }
+
+    // Recusadas pelo gateway: devolve o valor reservado à origem e marca FAILED, tudo na mesma transação.
+    // As PixTransactions são bloqueadas e só as ainda PENDING são estornadas (nunca duas vezes);
+    // as contas de origem são bloqueadas pelo TransferEngine em ordem de id, como em qualquer movimento de saldo.
+    @Override
+    public int markFailed(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return transferEngine.execute(em -> {
+            List<PixTransaction> pending = em.createQuery(
+                            "SELECT pt FROM PixTransaction pt WHERE pt.id IN :ids AND pt.status = :pending ORDER BY pt.id", PixTransaction.class)
+                    .setParameter("ids", ids)
+                    .setParameter("pending", PixTransaction.PixTransactionStatus.PENDING)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList();
+            if (pending.isEmpty()) {
+                return 0;
             }
-            if (pixTransaction != null) {
-                pixTransaction.setStatus(PixTransaction.PixTransactionStatus.FAILED);
+            Account[] origins = pending.stream().map(PixTransaction::getOriginAccount).distinct().toArray(Account[]::new);
+            Map<Long, Account> locked = new HashMap<>();
+            for (Account account : transferEngine.lockInOrder(em, origins)) {
+                locked.put(account.getId(), account);
             }
-            e.printStackTrace();
-            System.err.println("An unexpected error occurred during PixTransaction creation: " + e.getMessage());
-            throw new RuntimeException("Failed to create PixTransaction due to an unexpected error.", e);
-        } finally {
-            if (em != null) {
-                em.close(); // Fechar EM
+            for (PixTransaction pixTransaction : pending) {
+                Account origin = locked.get(pixTransaction.getOriginAccount().getId());
+                origin.setBalance(origin.getBalance().add(pixTransaction.getValue()));
+                pixTransaction.setStatus(PixTransaction.PixTransactionStatus.FAILED);
             }
-        }
+            return pending.size();
+        });
     }
 
     @Override
     public Optional<PixTransaction> findById(Long id) {
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            PixTransaction pt = em.find(PixTransaction.class, id);
-            return Optional.ofNullable(pt);
+            return Optional.ofNullable(UnitOfWork.read(em -> em.find(PixTransaction.class, id,
+                    Map.of(SpecHints.HINT_SPEC_FETCH_GRAPH, em.getEntityGraph(PixTransaction.WITH_ACCOUNTS)))));
         } catch (Exception e) {
             System.err.println("Error finding PixTransaction by ID: " + e.getMessage());
             return Optional.empty();
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 
     @Override
     public List<PixTransaction> findAllByAccount(Long accountId) {
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            TypedQuery<PixTransaction> query = em.createQuery(
-                    "SELECT pt FROM PixTransaction pt WHERE pt.originAccount.id = :accountId", PixTransaction.class); // Alterado para originAccount
-            query.setParameter("accountId", accountId);
-            return query.getResultList();
+            return UnitOfWork.read(em -> em.createQuery(
+                            "SELECT pt FROM PixTransaction pt JOIN FETCH pt.originAccount LEFT JOIN FETCH pt.destinationAccount"
+                                    + " WHERE pt.originAccount.id = :accountId"
+                                    + " ORDER BY pt.dateTime DESC, pt.id DESC", PixTransaction.class) // Mais recentes primeiro (índice origin_account_id, dateTime, id)
+                    .setParameter("accountId", accountId)
+                    .getResultList());
         } catch (Exception e) {
             System.err.println("Error finding PixTransactions by account: " + e.getMessage());
             return List.of();
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 
+    // Varredura de todas as PixTransactions (ou só das originadas em uma conta) em memória constante, em ordem de id.
+    // As instâncias entregues estão desanexadas e só valem durante o consumer (ver StreamingQuery).
+    @Override
+    public long streamAll(Long originAccountId, Consumer<PixTransaction> consumer) {
+        String jpql = "SELECT pt FROM PixTransaction pt JOIN FETCH pt.originAccount LEFT JOIN FETCH pt.destinationAccount"
+                + (originAccountId != null ? " WHERE pt.originAccount.id = :accountId" : "")
+                + " ORDER BY pt.id";
+        return StreamingQuery.forEach(em -> {
+            TypedQuery<PixTransaction> query = em.createQuery(jpql, PixTransaction.class);
+            if (originAccountId != null) {
+                query.setParameter("accountId", originAccountId);
+            }
+            return query;
+        }, StreamingQuery.DEFAULT_FETCH_SIZE, StreamingQuery.DEFAULT_CLEAR_INTERVAL, consumer);
+    }
+
+    private static PixTransaction copyOf(PixTransaction source, Account origin, Account destination,
+                                         PixTransaction.PixTransactionStatus status) {
+        return new PixTransaction(source.getPixKeyUsed(), source.getKeyTypeUsed(), source.getValue(), source.getDateTime(),
+                origin, destination, status);
+    }
+
     // Métodos de update e delete não foram adicionados, pois transações são imutáveis.
     // Se realmente precisasse, seguiria o padrão de outros repositórios, com transação e fechamento de EM.
-}
\ No newline at end of file
+}
@@ -1,11 +1,22 @@
 package repository;
 
+import dto.AccountSummary;
+import dto.InterestAccrualResult;
 import entities.SavingsAccount;
+import entities.Transaction;
 import interfaces.ISavingsAccountRepository;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.NoResultException;
-import util.JPAUtil;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import util.IdBlockAllocator;
+import util.UnitOfWork;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,103 +24,210 @@ public class SavingsAccountRepository implements ISavingsAccountRepository {
 
     @Override
     public void create(SavingsAccount account) {
-        // Correção: Garantir que o EntityManager seja fechado no finally
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-            em.persist(account);
-            em.getTransaction().commit();
+            UnitOfWork.write(em -> em.persist(account));
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             System.err.println("Error creating SavingsAccount: " + e.getMessage());
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 
     @Override
     public Optional<SavingsAccount> getByAccountNumber(String accountNumber) {
-        // Já usa try-finally, está correto
-        EntityManager em = JPAUtil.getEntityManager();
         try {
-            SavingsAccount account = em.createQuery(
-                            "SELECT c FROM SavingsAccount c WHERE c.accountNumber = :accountNumber", SavingsAccount.class)
+            SavingsAccount account = UnitOfWork.read(em -> em.createQuery(
+                            "SELECT c FROM SavingsAccount c JOIN FETCH c.client WHERE c.accountNumber = :accountNumber", SavingsAccount.class)
                     .setParameter("accountNumber", accountNumber)
-                    .getSingleResult();
+                    .getSingleResult());
             return Optional.of(account);
         } catch (NoResultException e) {
             return Optional.empty();
-        } finally {
-            em.close();
         }
     }
 
     @Override
     public List<SavingsAccount> getAll() {
-        // Correção: Garantir que o EntityManager seja fechado no finally
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            List<SavingsAccount> accounts = em.createQuery("SELECT c FROM SavingsAccount c", SavingsAccount.class).getResultList();
-            return accounts;
+            return UnitOfWork.read(em -> em.createQuery("SELECT c FROM SavingsAccount c JOIN FETCH c.client", SavingsAccount.class).getResultList());
         } catch (Exception e) {
             System.err.println("Error getting all SavingsAccounts: " + e.getMessage());
             return List.of(); // Retornar lista vazia em caso de erro
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 
     @Override
     public void update(SavingsAccount account) {
-        // Correção: Agora este update deve gerenciar sua própria transação e EM.
-        // O serviço de transferência faz o merge diretamente.
-        // Este update serve para outras operações que atualizem uma SavingsAccount isoladamente.
-        EntityManager em = null;
+        // Este update serve para operações que atualizem uma SavingsAccount isoladamente;
+        // dentro de uma UnitOfWork ele apenas participa da transação do serviço.
         try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-            em.merge(account);
-            em.getTransaction().commit();
+            UnitOfWork.write(em -> em.merge(account));
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             System.err.println("Error updating SavingsAccount: " + e.getMessage());
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 
     @Override
     public void delete(String accountNumber) {
-        // Já usa try-catch-finally, está correto
-        EntityManager em = JPAUtil.getEntityManager();
         try {
-            em.getTransaction().begin();
-            SavingsAccount account = em.createQuery(
-                            "SELECT c FROM SavingsAccount c WHERE c.accountNumber = :accountNumber", SavingsAccount.class)
-                    .setParameter("accountNumber", accountNumber)
-                    .getSingleResult();
-            em.remove(account);
-            em.getTransaction().commit();
+            UnitOfWork.write(em -> {
+                SavingsAccount account = em.createQuery(
+                                "SELECT c FROM SavingsAccount c WHERE c.accountNumber = :accountNumber", SavingsAccount.class)
+                        .setParameter("accountNumber", accountNumber)
+                        .getSingleResult();
+                em.remove(account);
+            });
         } catch (NoResultException e) {
             System.out.println("Savings account not found.");
-            em.getTransaction().rollback();
         } catch (Exception e) {
             e.printStackTrace();
-            em.getTransaction().rollback();
-        } finally {
-            em.close();
         }
     }
-}
\ No newline at end of file
+
+    // Só as colunas da listagem, sem hidratar as entidades (ver dto.AccountSummary)
+    @Override
+    public List<AccountSummary> getAllSummaries() {
+        try {
+            return UnitOfWork.read(em -> em.createQuery(
+                    "SELECT new dto.AccountSummary(a.id, a.accountNumber, 'SAVINGS', a.balance, c.name, c.cpf,"
+                            + " a.interestRate, a.latestInterestUpdate)"
+                            + " FROM SavingsAccount a JOIN a.client c ORDER BY a.accountNumber", AccountSummary.class).getResultList());
+        } catch (Exception e) {
+            System.err.println("Error getting SavingsAccount summaries: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    // Menor e maior id das poupanças ({min, max}), ou vazio se não houver nenhuma: base para dividir o fechamento em faixas
+    @Override
+    public long[] getIdBounds() {
+        Object[] bounds = UnitOfWork.read(em -> em.createQuery(
+                "SELECT MIN(s.id), MAX(s.id) FROM SavingsAccount s", Object[].class).getSingleResult());
+        return bounds[0] == null ? new long[0] : new long[]{((Number) bounds[0]).longValue(), ((Number) bounds[1]).longValue()};
+    }
+
+    // Transações gravadas como extrato dos juros (origem = destino = a poupança)
+    public static final String INTEREST_TRANSACTION_TYPE = "Interest";
+
+    // Poupanças da faixa que ainda não tiveram juros no período (latestInterestUpdate antes do primeiro dia do mês)
+    private static final String DUE_FOR_INTEREST = "s.id BETWEEN :fromId AND :toId"
+            + " AND s.interestRate > 0"
+            + " AND (s.latestInterestUpdate IS NULL OR s.latestInterestUpdate < :periodStart)";
+    private static final String DUE_FOR_INTEREST_SQL = "s.id BETWEEN :fromId AND :toId"
+            + " AND s.interestRate > 0"
+            + " AND (s.latest_interest_update IS NULL OR s.latest_interest_update < :periodStart)";
+
+    // Juros do período para as poupanças com id em [fromId, toId], em uma única transação, entidade por entidade.
+    // As contas devidas são bloqueadas em ordem de id, como no TransferEngine; os UPDATEs e os INSERTs do extrato
+    // saem em batches JDBC no commit.
+    // As exceções sobem: quem chama decide repetir (conflito de lock) ou contar o bloco como falho.
+    @Override
+    public InterestAccrualResult accrueInterest(long fromId, long toId, YearMonth period) {
+        LocalDate accrualDate = period.atEndOfMonth();
+        return UnitOfWork.execute(em -> {
+            long scanned = countInRange(em, fromId, toId);
+            if (scanned == 0) {
+                return InterestAccrualResult.empty(period);
+            }
+            List<SavingsAccount> due = dueQuery(em, "SELECT s FROM SavingsAccount s WHERE " + DUE_FOR_INTEREST + " ORDER BY s.id",
+                    SavingsAccount.class, fromId, toId, period)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .setHint("jakarta.persistence.lock.timeout", (int) TransferEngine.DEFAULT_LOCK_TIMEOUT_MILLIS) // Em query o Hibernate só aceita int
+                    .getResultList();
+
+            BigDecimal totalInterest = BigDecimal.ZERO;
+            for (SavingsAccount account : due) {
+                totalInterest = totalInterest.add(applyInterest(em, account, accrualDate));
+            }
+            return new InterestAccrualResult(period, scanned, due.size(), 0, totalInterest, 0);
+        });
+    }
+
+    // Juros de uma única poupança, já bloqueada na unidade aberta (SavingsAccountService.applyInterest).
+    // Mesmo cálculo, arredondamento e extrato do fechamento mensal.
+    @Override
+    public BigDecimal accrueInterest(SavingsAccount locked, LocalDate accrualDate) {
+        return UnitOfWork.execute(em -> applyInterest(em, locked, accrualDate));
+    }
+
+    private static BigDecimal applyInterest(EntityManager em, SavingsAccount account, LocalDate accrualDate) {
+        // HALF_UP: mesmo arredondamento do ROUND do banco no modo em lote
+        BigDecimal interest = account.getBalance().multiply(account.getInterestRate()).setScale(2, RoundingMode.HALF_UP);
+        account.setBalance(account.getBalance().add(interest));
+        account.setLatestInterestUpdate(accrualDate);
+        em.persist(new Transaction(INTEREST_TRANSACTION_TYPE, interest, accrualDate, account, account));
+        return interest;
+    }
+
+    // Mesmo resultado de accrueInterest, sem carregar entidades: para a taxa fixa de cada conta bastam comandos em lote.
+    //   1. bloqueia as contas devidas (só os ids, em ordem de id);
+    //   2. INSERT ... SELECT do extrato, calculado com o saldo de antes dos juros;
+    //   3. UPDATE do saldo e da version (transferências em andamento percebem a mudança) e depois do latestInterestUpdate.
+    // Como em todo UPDATE em lote, entidades já carregadas em outro EntityManager ficam com o saldo antigo.
+    @Override
+    public InterestAccrualResult accrueInterestInBulk(long fromId, long toId, YearMonth period) {
+        LocalDate accrualDate = period.atEndOfMonth();
+        return UnitOfWork.execute(em -> {
+            long scanned = countInRange(em, fromId, toId);
+            if (scanned == 0) {
+                return InterestAccrualResult.empty(period);
+            }
+            List<Long> due = dueQuery(em, "SELECT s.id FROM SavingsAccount s WHERE " + DUE_FOR_INTEREST + " ORDER BY s.id",
+                    Long.class, fromId, toId, period)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .setHint("jakarta.persistence.lock.timeout", (int) TransferEngine.DEFAULT_LOCK_TIMEOUT_MILLIS)
+                    .getResultList();
+            if (due.isEmpty()) {
+                return new InterestAccrualResult(period, scanned, 0, 0, BigDecimal.ZERO, 0);
+            }
+
+            BigDecimal totalInterest = dueQuery(em, "SELECT SUM(ROUND(s.balance * s.interestRate, 2)) FROM SavingsAccount s WHERE "
+                    + DUE_FOR_INTEREST, BigDecimal.class, fromId, toId, period).getSingleResult();
+            // O INSERT em lote do próprio Hibernate buscaria o id de cada linha separadamente (ver IdBlockAllocator)
+            String id = IdBlockAllocator.idExpression(em, Transaction.class, due.size(), "s.id");
+            int journaled = dueNativeUpdate(em, "INSERT INTO transactions (id, typeTransaction, value, date, origin_account_id, destination_account_id)"
+                            + " SELECT " + id + ", :type, ROUND(a.balance * s.interestRate, 2), :accrualDate, s.id, s.id"
+                            + " FROM SavingsAccount s JOIN Account a ON a.id = s.id WHERE " + DUE_FOR_INTEREST_SQL, fromId, toId, period)
+                    .setParameter("type", INTEREST_TRANSACTION_TYPE)
+                    .setParameter("accrualDate", accrualDate)
+                    .executeUpdate();
+            // Saldo e version ficam em Account e a taxa em SavingsAccount: o UPDATE em lote do Hibernate para herança JOINED
+            // não lê colunas de outra tabela no SET, então aqui é SQL direto, um comando por tabela (portável entre MySQL e H2)
+            int accrued = dueNativeUpdate(em, "UPDATE Account SET balance = balance + ROUND(balance *"
+                            + " (SELECT s.interestRate FROM SavingsAccount s WHERE s.id = Account.id), 2), version = version + 1"
+                            // O BETWEEN repetido deixa o banco percorrer só a faixa do bloco na chave primária de Account
+                            + " WHERE id BETWEEN :fromId AND :toId AND id IN (SELECT s.id FROM SavingsAccount s WHERE " + DUE_FOR_INTEREST_SQL + ")",
+                    fromId, toId, period)
+                    .executeUpdate();
+            dueNativeUpdate(em, "UPDATE SavingsAccount s SET latest_interest_update = :accrualDate WHERE " + DUE_FOR_INTEREST_SQL,
+                    fromId, toId, period)
+                    .setParameter("accrualDate", accrualDate)
+                    .executeUpdate();
+            if (journaled != accrued || accrued != due.size()) {
+                // As linhas estão bloqueadas, então isso só acontece se algo fora do lock mexeu nelas: desfaz o bloco
+                throw new IllegalStateException("Interest bulk update touched " + accrued + " accounts and journaled "
+                        + journaled + ", expected " + due.size() + ".");
+            }
+            return new InterestAccrualResult(period, scanned, accrued, 0, totalInterest, 0);
+        });
+    }
+
+    private static long countInRange(EntityManager em, long fromId, long toId) {
+        return em.createQuery("SELECT COUNT(s) FROM SavingsAccount s WHERE s.id BETWEEN :fromId AND :toId", Long.class)
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .getSingleResult();
+    }
+
+    private static <T> TypedQuery<T> dueQuery(EntityManager em, String jpql, Class<T> type, long fromId, long toId, YearMonth period) {
+        return em.createQuery(jpql, type)
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .setParameter("periodStart", period.atDay(1));
+    }
+
+    private static Query dueNativeUpdate(EntityManager em, String sql, long fromId, long toId, YearMonth period) {
+        return em.createNativeQuery(sql)
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .setParameter("periodStart", period.atDay(1));
+    }
+}
@@ -1,154 +1,331 @@
 package repository;
 
+import dto.TransactionBatchResult;
+import dto.TransactionCursor;
+import dto.TransactionFilter;
+import dto.TransactionPage;
+import dto.TransactionSummary;
 import entities.Account;
 import entities.Transaction;
 import interfaces.ITransactionRepository;
-
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.NoResultException; // Adicionado para getSingleResult
-import util.JPAUtil;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.SpecHints;
+import util.StreamingQuery;
+import util.UnitOfWork;
 
-import java.math.BigDecimal; // Importado BigDecimal
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 // Removida importação de EstruturaDeDadosListaEncadeada.TransactionHistory
 
 public class TransactionRepository implements ITransactionRepository { // Removido <Transaction> aqui
 
+    // Itens por transação no banco em createBatch; múltiplo de hibernate.jdbc.batch_size
+    public static final int DEFAULT_BATCH_CHUNK_SIZE = 500;
+
+    // Início das consultas paginadas: a entidade com as contas, ou só as colunas da listagem
+    private static final String ENTITY_SELECT =
+            "SELECT t FROM Transaction t JOIN FETCH t.originAccount JOIN FETCH t.destinationAccount";
+    private static final String SUMMARY_SELECT =
+            "SELECT new dto.TransactionSummary(t.id, t.typeTransaction, t.value, t.date, o.accountNumber, d.accountNumber)"
+                    + " FROM Transaction t JOIN t.originAccount o JOIN t.destinationAccount d";
+
+    private final TransferEngine transferEngine;
+
+    public TransactionRepository(TransferEngine transferEngine) {
+        this.transferEngine = transferEngine;
+    }
+
     @Override
-    public void create(Transaction transaction) {
-        EntityManager em = null;
+    public Transaction create(Transaction transaction) {
         try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-
-            // Buscar contas gerenciadas pelo EntityManager atual
-            // Usar merge para garantir que as contas estejam no contexto de persistência
-            Account originAccount = em.find(Account.class, transaction.getOriginAccount().getId());
-            Account destinationAccount = em.find(Account.class, transaction.getDestinationAccount().getId());
+            // O TransferEngine bloqueia as duas contas em ordem de id, valida o saldo já com lock e repete em caso de deadlock
+            return transferEngine.execute(em -> {
+                Account[] locked = transferEngine.move(em, transaction.getOriginAccount(), transaction.getDestinationAccount(), transaction.getValue());
+                // Uma cópia é gravada, como em createBatch: numa repetição o objeto do chamador não leva o id da tentativa desfeita
+                Transaction persisted = new Transaction(transaction.getTypeTransaction(), transaction.getValue(),
+                        transaction.getDate(), locked[0], locked[1]);
+                em.persist(persisted);      // Os saldos das contas gerenciadas vão no mesmo commit
+                return persisted;
+            });
+        } catch (RuntimeException e) { // Captura RuntimeException e IllegalArgumentException
+            System.err.println("Transaction creation failed: " + e.getMessage());
+            throw e; // Relançar para a camada de serviço
+        }
+    }
 
-            // Validações de nulidade para as contas buscadas (se não existirem, find retorna null)
-            if (originAccount == null) {
-                throw new IllegalArgumentException("Origin account not found.");
-            }
-            if (destinationAccount == null) {
-                throw new IllegalArgumentException("Destination account not found.");
-            }
+    @Override
+    public List<TransactionBatchResult> createBatch(List<Transaction> transactions) {
+        return createBatch(transactions, DEFAULT_BATCH_CHUNK_SIZE);
+    }
 
-            // A validação de saldo e a alteração de saldo são feitas aqui para garantir atomicidade
-            // dentro da mesma transação com o persist da Transaction
-            if (originAccount.getBalance().compareTo(transaction.getValue()) < 0) { // Usar compareTo para BigDecimal
-                throw new IllegalArgumentException("Insufficient balance in origin account.");
+    // Grava o lote em blocos de chunkSize, cada bloco em uma transação: as contas do bloco são bloqueadas
+    // uma única vez (em ordem de id), os itens são aplicados em memória e o commit envia tudo em batches JDBC.
+    // Um item recusado (saldo, conta inexistente) não afeta os outros; uma falha do banco recusa o bloco inteiro.
+    public List<TransactionBatchResult> createBatch(List<Transaction> transactions, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive.");
+        }
+        List<TransactionBatchResult> results = new ArrayList<>(transactions.size());
+        for (int start = 0; start < transactions.size(); start += chunkSize) {
+            int end = Math.min(start + chunkSize, transactions.size());
+            int first = start;
+            List<Transaction> chunk = transactions.subList(start, end);
+            try {
+                // Em uma repetição (deadlock, versão) o bloco é refeito do zero, inclusive os resultados
+                results.addAll(transferEngine.execute(em -> applyChunk(em, chunk, first)));
+            } catch (RuntimeException e) {
+                System.err.println("Transaction batch chunk " + start + "-" + (end - 1) + " failed: " + e.getMessage());
+                for (int i = start; i < end; i++) {
+                    results.add(TransactionBatchResult.failed(i, transactions.get(i), "Batch chunk failed: " + e.getMessage()));
+                }
             }
+        }
+        return results;
+    }
 
-            originAccount.setBalance(originAccount.getBalance().subtract(transaction.getValue())); // Usar subtract
-            destinationAccount.setBalance(destinationAccount.getBalance().add(transaction.getValue())); // Usar add
-
-            em.merge(originAccount);      // Sincroniza as mudanças de saldo no EM
-            em.merge(destinationAccount); // Sincroniza as mudanças de saldo no EM
-            em.persist(transaction);      // Persiste a transação
+    private List<TransactionBatchResult> applyChunk(EntityManager em, List<Transaction> chunk, int firstIndex) {
+        List<TransactionBatchResult> results = new ArrayList<>(chunk.size());
 
-            em.getTransaction().commit();
-        } catch (RuntimeException e) { // Captura RuntimeException e IllegalArgumentException
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
+        // Contas distintas do bloco, bloqueadas de uma vez: um SELECT ... FOR UPDATE por conta e não por transferência
+        Map<Long, Account> distinct = new LinkedHashMap<>();
+        for (Transaction transaction : chunk) {
+            if (transaction != null && transaction.getOriginAccount() != null && transaction.getOriginAccount().getId() != null) {
+                distinct.putIfAbsent(transaction.getOriginAccount().getId(), transaction.getOriginAccount());
             }
-            System.err.println("Transaction creation failed: " + e.getMessage());
-            throw e; // Relançar para a camada de serviço
-        } catch (Exception e) { // Captura outras exceções inesperadas
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
+            if (transaction != null && transaction.getDestinationAccount() != null && transaction.getDestinationAccount().getId() != null) {
+                distinct.putIfAbsent(transaction.getDestinationAccount().getId(), transaction.getDestinationAccount());
             }
-            e.printStackTrace(); // Para depuração, substituir por logging
-            System.err.println("An unexpected error occurred during transaction creation: " + e.getMessage());
-            throw new RuntimeException("Failed to create transaction due to an unexpected error.", e);
-        } finally {
-            if (em != null) {
-                em.close();
+        }
+        List<Account> lockedList = distinct.isEmpty()
+                ? List.of()
+                : transferEngine.lockInOrder(em, distinct.values().toArray(new Account[0]));
+        Map<Long, Account> locked = new LinkedHashMap<>();
+        int position = 0;
+        for (Long id : distinct.keySet()) {
+            locked.put(id, lockedList.get(position++));
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            Transaction transaction = chunk.get(i);
+            int index = firstIndex + i;
+            try {
+                if (transaction == null) {
+                    throw new IllegalArgumentException("Transaction can't be null.");
+                }
+                Account origin = transaction.getOriginAccount() == null ? null : locked.get(transaction.getOriginAccount().getId());
+                Account destination = transaction.getDestinationAccount() == null ? null : locked.get(transaction.getDestinationAccount().getId());
+                if (origin == null) {
+                    throw new IllegalArgumentException("Origin account not found.");
+                }
+                if (destination == null) {
+                    throw new IllegalArgumentException("Destination account not found.");
+                }
+                if (origin == destination) {
+                    throw new IllegalArgumentException("Origin and destination accounts must be different.");
+                }
+                transferEngine.moveLocked(origin, destination, transaction.getValue());
+                // Uma cópia é gravada: se o bloco for repetido, o objeto do chamador não carrega um id de uma tentativa desfeita
+                Transaction persisted = new Transaction(transaction.getTypeTransaction(), transaction.getValue(),
+                        transaction.getDate(), origin, destination);
+                em.persist(persisted);
+                results.add(TransactionBatchResult.ok(index, persisted));
+            } catch (IllegalArgumentException e) {
+                results.add(TransactionBatchResult.failed(index, transaction, e.getMessage()));
             }
         }
+        return results;
     }
 
     @Override
     public Optional<Transaction> getById(long id) {
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            Transaction transaction = em.find(Transaction.class, id);
-            return Optional.ofNullable(transaction);
+            return Optional.ofNullable(UnitOfWork.read(em -> em.find(Transaction.class, id,
+                    Map.of(SpecHints.HINT_SPEC_FETCH_GRAPH, em.getEntityGraph(Transaction.WITH_ACCOUNTS)))));
         } catch (Exception e) {
             System.err.println("Error getting transaction by ID: " + e.getMessage());
             return Optional.empty();
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 
+    // Carrega a tabela inteira: para telas e exportações use findPage
     @Override
     public List<Transaction> getAll() { // Alterado de TransactionHistory para List<Transaction>
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            List<Transaction> transactions = em.createQuery("SELECT t FROM Transaction t", Transaction.class).getResultList();
-            return transactions; // Retorna a lista diretamente
+            return UnitOfWork.read(em -> em.createQuery(ENTITY_SELECT, Transaction.class).getResultList());
         } catch (Exception e) {
             System.err.println("Error getting all transactions: " + e.getMessage());
             return List.of(); // Retorna lista vazia em caso de erro
-        } finally {
-            if (em != null) {
-                em.close();
+        }
+    }
+
+    // Varredura completa (exportação, conciliação) em memória constante, em ordem de id.
+    // As transações entregues estão desanexadas e só valem durante o consumer (ver StreamingQuery).
+    @Override
+    public long streamAll(TransactionFilter filter, Consumer<Transaction> consumer) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT t FROM Transaction t JOIN FETCH t.originAccount JOIN FETCH t.destinationAccount WHERE 1 = 1");
+        if (filter.getAccountId() != null) {
+            jpql.append(" AND (t.originAccount.id = :accountId OR t.destinationAccount.id = :accountId)");
+        }
+        if (filter.getFrom() != null) {
+            jpql.append(" AND t.date >= :from");
+        }
+        if (filter.getTo() != null) {
+            jpql.append(" AND t.date <= :to");
+        }
+        jpql.append(" ORDER BY t.id"); // Ordem da chave primária: o banco não precisa ordenar o resultado inteiro antes
+        return StreamingQuery.forEach(em -> {
+            TypedQuery<Transaction> query = em.createQuery(jpql.toString(), Transaction.class);
+            if (filter.getAccountId() != null) {
+                query.setParameter("accountId", filter.getAccountId());
             }
+            if (filter.getFrom() != null) {
+                query.setParameter("from", filter.getFrom());
+            }
+            if (filter.getTo() != null) {
+                query.setParameter("to", filter.getTo());
+            }
+            return query;
+        }, StreamingQuery.DEFAULT_FETCH_SIZE, StreamingQuery.DEFAULT_CLEAR_INTERVAL, consumer);
+    }
+
+    // Paginação por seek em (date, id): cada página busca só pageSize + 1 linhas a partir do cursor,
+    // sem OFFSET, então o custo é o mesmo na primeira e na milésima página.
+    // Com filtro de conta, origem e destino são consultados separadamente (cada consulta segue o índice
+    // da sua coluna) e as duas listas, já ordenadas, são intercaladas em memória.
+    @Override
+    public TransactionPage<Transaction> findPage(TransactionFilter filter, TransactionCursor after, int pageSize) {
+        return findPage(ENTITY_SELECT, Transaction.class, Transaction::getDate, Transaction::getId, filter, after, pageSize);
+    }
+
+    // Mesma paginação, mas cada linha é uma projeção com as colunas da listagem (sem hidratar as contas)
+    @Override
+    public TransactionPage<TransactionSummary> findSummaryPage(TransactionFilter filter, TransactionCursor after, int pageSize) {
+        return findPage(SUMMARY_SELECT, TransactionSummary.class, TransactionSummary::getDate, TransactionSummary::getId, filter, after, pageSize);
+    }
+
+    private <T> TransactionPage<T> findPage(String select, Class<T> type, Function<T, LocalDate> date, Function<T, Long> id,
+                                            TransactionFilter filter, TransactionCursor after, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive.");
+        }
+        try {
+            return UnitOfWork.read(em -> {
+                List<T> rows;
+                if (filter.getAccountId() == null) {
+                    rows = pageQuery(em, select, type, null, filter, after, pageSize + 1).getResultList();
+                } else {
+                    rows = mergeByDateAndId(
+                            pageQuery(em, select, type, "originAccount", filter, after, pageSize + 1).getResultList(),
+                            pageQuery(em, select, type, "destinationAccount", filter, after, pageSize + 1).getResultList(),
+                            Comparator.comparing(date).thenComparing(id),
+                            pageSize + 1);
+                }
+                if (rows.size() <= pageSize) {
+                    return new TransactionPage<>(rows, null);
+                }
+                List<T> page = rows.subList(0, pageSize);
+                T last = page.get(pageSize - 1);
+                return new TransactionPage<>(page, new TransactionCursor(date.apply(last), id.apply(last)));
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Error getting transaction page: " + e.getMessage());
+            // Uma página vazia pareceria o fim dos dados: quem percorre a listagem acharia que ela terminou
+            throw e;
+        }
+    }
+
+    private static <T> TypedQuery<T> pageQuery(EntityManager em, String select, Class<T> type, String accountSide,
+                                               TransactionFilter filter, TransactionCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder(select).append(" WHERE 1 = 1");
+        if (accountSide != null) {
+            jpql.append(" AND t.").append(accountSide).append(".id = :accountId");
+        }
+        if (filter.getFrom() != null) {
+            jpql.append(" AND t.date >= :from");
+        }
+        if (filter.getTo() != null) {
+            jpql.append(" AND t.date <= :to");
         }
+        if (after != null) {
+            // O "t.date >= :afterDate" repetido deixa o banco usar o índice como intervalo a partir do cursor
+            jpql.append(" AND t.date >= :afterDate AND (t.date > :afterDate OR t.id > :afterId)");
+        }
+        jpql.append(" ORDER BY t.date, t.id");
+
+        TypedQuery<T> query = em.createQuery(jpql.toString(), type).setMaxResults(limit);
+        if (accountSide != null) {
+            query.setParameter("accountId", filter.getAccountId());
+        }
+        if (filter.getFrom() != null) {
+            query.setParameter("from", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            query.setParameter("to", filter.getTo());
+        }
+        if (after != null) {
+            query.setParameter("afterDate", after.getDate());
+            query.setParameter("afterId", after.getId());
+        }
+        return query;
+    }
+
+    // Intercala duas listas ordenadas por (date, id); uma transferência da conta para ela mesma aparece uma vez só
+    private static <T> List<T> mergeByDateAndId(List<T> first, List<T> second, Comparator<T> order, int limit) {
+        List<T> merged = new ArrayList<>(Math.min(limit, first.size() + second.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < first.size() || j < second.size())) {
+            T next;
+            if (j >= second.size()) {
+                next = first.get(i++);
+            } else if (i >= first.size()) {
+                next = second.get(j++);
+            } else {
+                int cmp = order.compare(first.get(i), second.get(j));
+                next = cmp <= 0 ? first.get(i++) : second.get(j++);
+                if (cmp == 0) {
+                    j++;
+                }
+            }
+            merged.add(next);
+        }
+        return merged;
     }
 
     @Override
     public void update(Transaction transaction) {
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-            em.merge(transaction);
-            em.getTransaction().commit();
+            UnitOfWork.write(em -> em.merge(transaction));
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             System.err.println("Error updating transaction: " + e.getMessage());
             throw new RuntimeException("Failed to update transaction", e); // Relançar exceção
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 
     @Override
     public void delete(long id) {
-        EntityManager em = null;
         try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-            Transaction transaction = em.find(Transaction.class, id);
-            if (transaction != null) {
-                em.remove(transaction);
-            } else {
-                System.out.println("Transaction with ID " + id + " not found for deletion.");
-            }
-            em.getTransaction().commit();
+            UnitOfWork.write(em -> {
+                Transaction transaction = em.find(Transaction.class, id);
+                if (transaction != null) {
+                    em.remove(transaction);
+                } else {
+                    System.out.println("Transaction with ID " + id + " not found for deletion.");
+                }
+            });
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             System.err.println("Error deleting transaction (ID: " + id + "): " + e.getMessage());
             throw new RuntimeException("Failed to delete transaction", e); // Relançar exceção
-        } finally {
-            if (em != null) {
-                em.close();
-            }
         }
     }
 }
\ No newline at end of file
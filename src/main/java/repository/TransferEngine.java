@@ -0,0 +1,138 @@
+package repository;
+
+import entities.Account;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import util.RetryPolicy;
+import util.UnitOfWork;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Motor único para todas as operações que movem saldo entre contas.
+// Modo PESSIMISTIC: as contas são bloqueadas (PESSIMISTIC_WRITE) na ordem crescente de id, com tempo
+// máximo de espera pelo lock; assim duas transferências opostas (A->B e B->A) não travam uma à outra.
+// Modo OPTIMISTIC: nenhuma linha fica bloqueada durante a leitura; o @Version de Account detecta
+// a escrita concorrente no flush. Nos dois modos a operação inteira é repetida conforme a RetryPolicy.
+public class TransferEngine {
+
+    public enum LockStrategy {
+        PESSIMISTIC, OPTIMISTIC
+    }
+
+    public static final long DEFAULT_LOCK_TIMEOUT_MILLIS = 5000;
+
+    private final RetryPolicy retryPolicy;
+    private final LockStrategy lockStrategy;
+    private final long lockTimeoutMillis;
+
+    public TransferEngine() {
+        this(RetryPolicy.defaults(), LockStrategy.PESSIMISTIC, DEFAULT_LOCK_TIMEOUT_MILLIS);
+    }
+
+    public TransferEngine(RetryPolicy retryPolicy, LockStrategy lockStrategy, long lockTimeoutMillis) {
+        this.retryPolicy = retryPolicy;
+        this.lockStrategy = lockStrategy;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    // Executa a operação em uma UnitOfWork, repetindo se houver conflito de concorrência.
+    // Se já existe uma UnitOfWork aberta, apenas participa dela: quem abriu a unidade é quem pode repetir.
+    public <T> T execute(Function<EntityManager, T> work) {
+        if (UnitOfWork.isActive()) {
+            return UnitOfWork.execute(work);
+        }
+        return retryPolicy.execute(() -> UnitOfWork.execute(work));
+    }
+
+    // Bloqueia as contas na ordem canônica (id crescente) e devolve as instâncias gerenciadas
+    // na mesma ordem em que foram passadas. Deve ser chamado dentro de uma UnitOfWork.
+    public List<Account> lockInOrder(EntityManager em, Account... accounts) {
+        List<Account> ordered = new ArrayList<>(List.of(accounts));
+        ordered.sort(Comparator.comparing(Account::getId));
+
+        Map<String, Object> hints = Map.of("jakarta.persistence.lock.timeout", lockTimeoutMillis);
+        List<Account> locked = new ArrayList<>();
+        for (Account account : ordered) {
+            Account managed;
+            if (lockStrategy == LockStrategy.OPTIMISTIC) {
+                // Sem lock: se outra transação gravar a conta antes, o @Version falha no flush e a operação é repetida
+                managed = em.contains(account) ? account : em.find(Account.class, account.getId());
+            } else if (em.contains(account)) {
+                // Já carregada sem lock nesta unidade: recarrega o saldo junto com o lock para não usar valor velho
+                em.refresh(account, LockModeType.PESSIMISTIC_WRITE, hints);
+                managed = account;
+            } else {
+                managed = em.find(Account.class, account.getId(), LockModeType.PESSIMISTIC_WRITE, hints);
+            }
+            locked.add(managed);
+        }
+
+        List<Account> result = new ArrayList<>();
+        for (Account account : accounts) {
+            result.add(locked.get(ordered.indexOf(account)));
+        }
+        return result;
+    }
+
+    // Debita a origem e credita o destino (destino null = conta externa, apenas débito).
+    // Devolve as contas gerenciadas e bloqueadas [origem, destino].
+    public Account[] move(EntityManager em, Account origin, Account destination, BigDecimal amount) {
+        // Valor negativo inverteria o sentido da transferência: não depende da validação feita no serviço
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Invalid transfer amount.");
+        }
+        if (origin == null || origin.getId() == null) {
+            throw new IllegalArgumentException("Origin account not found.");
+        }
+        if (destination != null && destination.getId() == null) {
+            throw new IllegalArgumentException("Destination account not found.");
+        }
+        if (destination != null && origin.getId().equals(destination.getId())) {
+            throw new IllegalArgumentException("Origin and destination accounts must be different.");
+        }
+
+        List<Account> locked = destination == null ? lockInOrder(em, origin) : lockInOrder(em, origin, destination);
+        Account lockedOrigin = locked.get(0);
+        Account lockedDestination = destination == null ? null : locked.get(1);
+
+        if (lockedOrigin == null) {
+            throw new IllegalArgumentException("Origin account not found.");
+        }
+        if (destination != null && lockedDestination == null) {
+            throw new IllegalArgumentException("Destination account not found.");
+        }
+        // A validação do saldo acontece só depois do lock, então nenhuma outra transação muda o valor entre a leitura e a escrita
+        if (lockedOrigin.getBalance().compareTo(amount) < 0) {
+            throw new IllegalArgumentException("Insufficient balance in origin account.");
+        }
+
+        lockedOrigin.setBalance(lockedOrigin.getBalance().subtract(amount));
+        if (lockedDestination != null) {
+            lockedDestination.setBalance(lockedDestination.getBalance().add(amount));
+        }
+        // Flush aqui: um conflito de versão aparece antes de o chamador persistir o registro da transação,
+        // e depois do UPDATE a linha já fica bloqueada até o commit
+        em.flush();
+        return new Account[]{lockedOrigin, lockedDestination};
+    }
+
+    // Variante de move() para lotes: as contas já vieram de lockInOrder e não há flush por item,
+    // então o Hibernate agrupa os UPDATEs e INSERTs do lote em batches JDBC no commit.
+    public void moveLocked(Account lockedOrigin, Account lockedDestination, BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Invalid transfer amount.");
+        }
+        if (lockedOrigin.getBalance().compareTo(amount) < 0) {
+            throw new IllegalArgumentException("Insufficient balance in origin account.");
+        }
+        lockedOrigin.setBalance(lockedOrigin.getBalance().subtract(amount));
+        if (lockedDestination != null) {
+            lockedDestination.setBalance(lockedDestination.getBalance().add(amount));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package services;
 
+import dto.AccountSummary;
 import entities.Account;
 import interfaces.IAccountService;
 import repository.AccountRepository;
@@ -29,4 +30,9 @@ public class AccountService implements IAccountService<Account> { // O <Account>
     public List<Account> getAll() {
         return accountRepository.getAll();
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<AccountSummary> getAllSummaries() {
+        return accountRepository.getAllSummaries();
+    }
+}
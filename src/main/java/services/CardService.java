@@ -1,5 +1,6 @@
 package services;
 
+import dto.CardSummary;
 import entities.Card;
 import interfaces.ICardService;
 import repository.CardRepository;
@@ -90,4 +91,9 @@ public class CardService implements ICardService<Card> {
             System.out.println("Failed to delete card: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<CardSummary> getAllSummaries() {
+        return cardRepository.getAllSummaries();
+    }
+}
@@ -1,14 +1,14 @@
 package services;
 
+import dto.AccountSummary;
 import entities.CurrentAccount;
 import entities.SavingsAccount; // Importar SavingsAccount para a transferência
 import interfaces.ICurrentAccountService;
-import jakarta.persistence.EntityManager; // Importar EntityManager para gerenciamento de transação
-import jakarta.persistence.LockModeType; // Importar LockModeType
 import jakarta.persistence.NoResultException; // Importar NoResultException
+import ledger.LedgerEngine;
 import repository.CurrentAccountRepository;
 import repository.SavingsAccountRepository;
-import util.JPAUtil; // Importar JPAUtil
+import repository.TransferEngine;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -16,16 +16,35 @@ import java.util.Optional;
 
 public class CurrentAccountService implements ICurrentAccountService<CurrentAccount> {
 
+    public static final String TRANSFER_TO_SAVINGS_TYPE = "Transfer to savings";
+
     private final CurrentAccountRepository currentAccountRepository;
     private final SavingsAccountRepository savingsAccountRepository;
     private final ClientService clientService;
+    private final TransferEngine transferEngine;
+    private final LedgerEngine ledgerEngine; // Opcional: ligado, é o dono dos saldos (ver LedgerEngine)
+
+    public CurrentAccountService(CurrentAccountRepository currentAccountRepository,
+                                 ClientService clientService,
+                                 SavingsAccountRepository savingsAccountRepository,
+                                 TransferEngine transferEngine) {
+        this(currentAccountRepository, clientService, savingsAccountRepository, transferEngine, null);
+    }
 
     public CurrentAccountService(CurrentAccountRepository currentAccountRepository,
                                  ClientService clientService,
-                                 SavingsAccountRepository savingsAccountRepository) {
+                                 SavingsAccountRepository savingsAccountRepository,
+                                 TransferEngine transferEngine,
+                                 LedgerEngine ledgerEngine) {
         this.currentAccountRepository = currentAccountRepository;
         this.clientService = clientService;
         this.savingsAccountRepository = savingsAccountRepository;
+        this.transferEngine = transferEngine;
+        this.ledgerEngine = ledgerEngine;
+    }
+
+    private boolean isLedgerRunning() {
+        return ledgerEngine != null && ledgerEngine.isRunning();
     }
 
     @Override
@@ -47,6 +66,23 @@ public class CurrentAccountService implements ICurrentAccountService<CurrentAcco
             System.out.println("Current Account created successfully.");
         } catch (RuntimeException e) {
             System.out.println("Failed to create Current Account: " + e.getMessage());
+            return;
+        }
+        if (isLedgerRunning()) {
+            openInLedger(account.getAccountNumber());
+        }
+    }
+
+    // Conta criada com o ledger ligado: sem o registro ele recusaria qualquer movimento dela até a próxima inicialização
+    private void openInLedger(String accountNumber) {
+        try {
+            // O create do repositório engole erros: só registra a conta que de fato foi gravada
+            Optional<CurrentAccount> created = currentAccountRepository.getByAccountNumber(accountNumber);
+            if (created.isPresent()) {
+                LedgerEngine.await(ledgerEngine.openAccount(created.get().getId(), created.get().getBalance()));
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Account " + accountNumber + " was created but could not be registered in the ledger: " + e.getMessage());
         }
     }
 
@@ -70,6 +106,10 @@ public class CurrentAccountService implements ICurrentAccountService<CurrentAcco
             System.out.println("Current account " + account.getAccountNumber() + " not found for update.");
             return;
         }
+        if (isLedgerRunning() && existingAccount.get().getBalance().compareTo(account.getBalance()) != 0) {
+            System.out.println("Balance can only change through transfers while the in-memory ledger is enabled.");
+            return;
+        }
         try {
             this.currentAccountRepository.update(account);
             System.out.println("Current Account updated successfully.");
@@ -99,58 +139,58 @@ public class CurrentAccountService implements ICurrentAccountService<CurrentAcco
             return;
         }
 
-        EntityManager em = null; // Declarar o EM aqui para usá-lo no finally
-        try {
-            em = JPAUtil.getEntityManager(); // Obter o EM
-            em.getTransaction().begin(); // INICIAR A TRANSAÇÃO AQUI NO SERVIÇO
-
-            // Buscar as contas DENTRO da mesma transação, com bloqueio pessimista para concorrência
-            CurrentAccount current = em.createQuery(
-                            "SELECT c FROM CurrentAccount c WHERE c.accountNumber = :accountNumber", CurrentAccount.class)
-                    .setParameter("accountNumber", currentAccountNumber)
-                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
-                    .getSingleResult();
-
-            SavingsAccount savings = em.createQuery(
-                            "SELECT s FROM SavingsAccount s WHERE s.accountNumber = :accountNumber", SavingsAccount.class)
-                    .setParameter("accountNumber", savingsAccountNumber)
-                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
-                    .getSingleResult();
-
-            // Validações
-            if (current.getBalance().compareTo(amount) < 0) {
-                System.out.println("Insufficient balance in current account.");
-                em.getTransaction().rollback(); // Reverter a transação em caso de saldo insuficiente
-                return;
-            }
-
-            // Lógica de débito e crédito
-            current.setBalance(current.getBalance().subtract(amount));
-            savings.setBalance(savings.getBalance().add(amount));
-
-            // Persistir as mudanças no MESMO EntityManager da transação
-            em.merge(current); // Usar merge para reanexar ou atualizar as entidades
-            em.merge(savings);
+        if (isLedgerRunning()) {
+            transferInLedger(currentAccountNumber, savingsAccountNumber, amount);
+            return;
+        }
 
-            em.getTransaction().commit(); // COMITAR A TRANSAÇÃO AQUI NO SERVIÇO
+        try {
+            // O TransferEngine bloqueia as contas sempre na ordem de id (igual ao transferToCurrent da poupança),
+            // valida o saldo já com o lock e repete a operação se houver deadlock ou timeout de lock.
+            transferEngine.execute(em -> {
+                // Buscar as contas só para resolver id e tipo; o lock é feito pelo motor
+                CurrentAccount current = em.createQuery(
+                                "SELECT c FROM CurrentAccount c WHERE c.accountNumber = :accountNumber", CurrentAccount.class)
+                        .setParameter("accountNumber", currentAccountNumber)
+                        .getSingleResult();
+
+                SavingsAccount savings = em.createQuery(
+                                "SELECT s FROM SavingsAccount s WHERE s.accountNumber = :accountNumber", SavingsAccount.class)
+                        .setParameter("accountNumber", savingsAccountNumber)
+                        .getSingleResult();
+
+                return transferEngine.move(em, current, savings, amount);
+            });
 
             System.out.println("Transferred " + amount + " from Current Account to Savings Account.");
 
         } catch (NoResultException e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback(); // Reverter se alguma conta não for encontrada
-            }
             System.out.println("One or both accounts not found.");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage()); // Ex: saldo insuficiente (a transação já foi revertida)
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback(); // Reverter em caso de qualquer outro erro
-            }
             e.printStackTrace(); // Para depuração, substituir por logging em produção
             System.out.println("Error during transfer: " + e.getMessage());
-        } finally {
-            if (em != null) {
-                em.close(); // Fechar o EntityManager no finally
-            }
+        }
+    }
+
+    // Com o ledger, a unidade só resolve os ids; o saldo muda no ledger e o LedgerPersister grava depois
+    // (com um registro de Transaction, como qualquer transferência do ledger)
+    private void transferInLedger(String currentAccountNumber, String savingsAccountNumber, BigDecimal amount) {
+        try {
+            long[] ids = transferEngine.execute(em -> new long[]{
+                    em.createQuery("SELECT c.id FROM CurrentAccount c WHERE c.accountNumber = :accountNumber", Long.class)
+                            .setParameter("accountNumber", currentAccountNumber)
+                            .getSingleResult(),
+                    em.createQuery("SELECT s.id FROM SavingsAccount s WHERE s.accountNumber = :accountNumber", Long.class)
+                            .setParameter("accountNumber", savingsAccountNumber)
+                            .getSingleResult()});
+            LedgerEngine.await(ledgerEngine.transfer(ids[0], ids[1], amount, TRANSFER_TO_SAVINGS_TYPE));
+            System.out.println("Transferred " + amount + " from Current Account to Savings Account.");
+        } catch (NoResultException e) {
+            System.out.println("One or both accounts not found.");
+        } catch (RuntimeException e) {
+            System.out.println("Error during transfer: " + e.getMessage());
         }
     }
 
@@ -158,4 +198,9 @@ public class CurrentAccountService implements ICurrentAccountService<CurrentAcco
     public List<CurrentAccount> getAll() {
         return currentAccountRepository.getAll();
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<AccountSummary> getAllSummaries() {
+        return currentAccountRepository.getAllSummaries();
+    }
+}
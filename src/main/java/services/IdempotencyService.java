@@ -0,0 +1,171 @@
+package services;
+
+import dto.IdempotentResult;
+import entities.IdempotencyRecord;
+import interfaces.IIdempotencyRepository;
+import jakarta.persistence.EntityManager;
+import repository.IdempotencyRepository;
+import repository.TransferEngine;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Chaves de idempotência para operações que movem saldo: o cliente envia a mesma chave ao repetir um pedido
+// (ex: depois de um timeout) e recebe o resultado da primeira execução, sem debitar de novo.
+// - a chave é gravada na MESMA transação da operação: confirmada a transferência, a chave também está gravada;
+//   se a operação falha, nada é gravado e o pedido pode ser repetido com a mesma chave;
+// - repetições recentes são respondidas pelo índice em memória do IdempotencyRepository, as demais pelo banco;
+// - dois pedidos iguais ao mesmo tempo: a chave primária serializa os dois, e o segundo recebe o resultado do primeiro;
+// - a mesma chave com outro pedido (valor, contas, tipo) é recusada.
+// As chaves ficam no banco por retention (purgeExpired); depois disso a chave pode ser reutilizada.
+public class IdempotencyService {
+
+    public static final String TRANSFER = "TRANSFER";
+    public static final String PIX = "PIX";
+    public static final Duration DEFAULT_RETENTION = Duration.ofHours(24);
+
+    private final IIdempotencyRepository idempotencyRepository;
+    private final TransferEngine transferEngine;
+    private final Duration retention;
+    // Chaves em execução por executeThenRecord nesta instância; o future termina quando a execução acaba
+    private final ConcurrentMap<String, CompletableFuture<Void>> inProgress = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IIdempotencyRepository idempotencyRepository, TransferEngine transferEngine) {
+        this(idempotencyRepository, transferEngine, DEFAULT_RETENTION);
+    }
+
+    public IdempotencyService(IIdempotencyRepository idempotencyRepository, TransferEngine transferEngine, Duration retention) {
+        if (retention.isNegative() || retention.isZero()) {
+            throw new IllegalArgumentException("retention must be positive.");
+        }
+        this.idempotencyRepository = idempotencyRepository;
+        this.transferEngine = transferEngine;
+        this.retention = retention;
+    }
+
+    // Executa work uma única vez por chave. work roda dentro da UnitOfWork aberta aqui (não chame dentro de outra unidade)
+    // e devolve o id do registro criado; para recusar o pedido sem gravar a chave, work deve lançar exceção.
+    public IdempotentResult execute(String key, String operation, String requestHash, Function<EntityManager, Long> work) {
+        validateKey(key);
+        Optional<IdempotencyRecord> stored = idempotencyRepository.findByKey(key);
+        if (stored.isPresent()) {
+            return replay(stored.get(), operation, requestHash);
+        }
+        try {
+            IdempotencyRecord record = transferEngine.execute(em -> {
+                // Objeto novo a cada tentativa: o TransferEngine repete a unidade inteira em caso de deadlock
+                IdempotencyRecord reserved = new IdempotencyRecord(key, operation, requestHash, LocalDateTime.now());
+                idempotencyRepository.reserve(reserved);
+                reserved.setResultId(work.apply(em));
+                if (em.getTransaction().getRollbackOnly()) {
+                    // Algum repositório falhou e engoliu a exceção: a UnitOfWork vai desfazer tudo, inclusive a chave
+                    throw new IllegalStateException("Operation failed and was rolled back.");
+                }
+                return reserved;
+            });
+            idempotencyRepository.remember(record);
+            return IdempotentResult.executed(record);
+        } catch (RuntimeException e) {
+            if (!IdempotencyRepository.isDuplicateKey(e)) {
+                throw e;
+            }
+            // Outro pedido com a mesma chave confirmou primeiro: a resposta é a dele
+            IdempotencyRecord winner = idempotencyRepository.findByKey(key).orElseThrow(() -> e);
+            return replay(winner, operation, requestHash);
+        }
+    }
+
+    // Variante de execute para operações que não passam por uma transação do banco (ex: o ledger em memória):
+    // work roda SEM UnitOfWork, então pode esperar uma confirmação sem segurar uma conexão do pool, e a chave é
+    // gravada logo depois, numa transação curta. Pedidos com a mesma chave nesta instância são serializados em memória.
+    // Se work lança exceção nada é gravado; uma queda entre o fim de work e a gravação deixa a operação feita sem chave
+    // (a repetição executaria de novo).
+    public IdempotentResult executeThenRecord(String key, String operation, String requestHash, Supplier<Long> work) {
+        validateKey(key);
+        while (true) {
+            Optional<IdempotencyRecord> stored = idempotencyRepository.findByKey(key);
+            if (stored.isPresent()) {
+                return replay(stored.get(), operation, requestHash);
+            }
+            CompletableFuture<Void> claim = new CompletableFuture<>();
+            CompletableFuture<Void> other = inProgress.putIfAbsent(key, claim);
+            if (other != null) {
+                other.join(); // Sempre termina: quem pegou a chave completa o future no finally abaixo
+                continue; // Gravada: responde como repetição; falhou: esta chamada tenta executar
+            }
+            try {
+                // Outro pedido pode ter terminado entre a busca e o putIfAbsent
+                stored = idempotencyRepository.findByKey(key);
+                if (stored.isPresent()) {
+                    return replay(stored.get(), operation, requestHash);
+                }
+                Long resultId = work.get();
+                IdempotencyRecord record = transferEngine.execute(em -> {
+                    IdempotencyRecord reserved = new IdempotencyRecord(key, operation, requestHash, LocalDateTime.now());
+                    reserved.setResultId(resultId);
+                    idempotencyRepository.reserve(reserved);
+                    return reserved;
+                });
+                idempotencyRepository.remember(record);
+                return IdempotentResult.executed(record);
+            } finally {
+                inProgress.remove(key, claim);
+                claim.complete(null);
+            }
+        }
+    }
+
+    private static IdempotentResult replay(IdempotencyRecord record, String operation, String requestHash) {
+        if (!record.getOperation().equals(operation) || !record.getRequestHash().equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency key '" + record.getKey() + "' was already used for a different request.");
+        }
+        return IdempotentResult.replayed(record);
+    }
+
+    private static void validateKey(String key) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("Idempotency key can't be empty.");
+        }
+        if (key.length() > IdempotencyRecord.MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key can't be longer than " + IdempotencyRecord.MAX_KEY_LENGTH + " characters.");
+        }
+    }
+
+    // SHA-256 dos campos que definem o pedido; valores monetários devem vir normalizados (ex: stripTrailingZeros)
+    public static String fingerprint(Object... parts) {
+        StringBuilder canonical = new StringBuilder();
+        for (Object part : parts) {
+            canonical.append(part).append('\u001F'); // Separador que não aparece nos campos
+        }
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available.", e); // Obrigatório em toda JVM
+        }
+    }
+
+    // Apaga as chaves mais velhas que a retenção; chamado na inicialização
+    public int purgeExpired() {
+        try {
+            return idempotencyRepository.deleteOlderThan(LocalDateTime.now().minus(retention));
+        } catch (RuntimeException e) {
+            System.err.println("Error purging expired idempotency keys: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    public String getIndexReport() {
+        return idempotencyRepository.getIndexMetrics().toString();
+    }
+}
@@ -0,0 +1,160 @@
+package services;
+
+import dto.InterestAccrualResult;
+import interfaces.ISavingsAccountRepository;
+import ledger.LedgerEngine;
+import repository.TransferEngine;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fechamento de juros do mês para todas as poupanças.
+// A faixa [menor id, maior id] é dividida em blocos de chunkSize ids, processados em paralelo por parallelism threads;
+// cada bloco é uma transação curta (ver SavingsAccountRepository.accrueInterest), repetida pelo TransferEngine
+// se esbarrar no lock de uma transferência. Poupanças que já tiveram juros no período são puladas, então rodar
+// de novo depois de uma falha (ou rodar duas vezes) só processa o que faltou.
+// O progresso vai para o console no máximo uma vez por PROGRESS_INTERVAL_MILLIS.
+public class InterestAccrualJob {
+
+    // ENTITY: carrega e altera cada poupança (SavingsAccountRepository.accrueInterest).
+    // BULK: taxa fixa por conta aplicada com UPDATE e INSERT ... SELECT por bloco, sem carregar entidades.
+    public enum Mode {
+        ENTITY, BULK
+    }
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_PARALLELISM = 4; // Abaixo do tamanho do pool de conexões, que também atende o resto da aplicação
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+
+    private final ISavingsAccountRepository savingsAccountRepository;
+    private final TransferEngine transferEngine;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Mode defaultMode;
+    private final LedgerEngine ledgerEngine; // Opcional: ligado, o fechamento é recusado (os juros creditam direto no banco)
+
+    public InterestAccrualJob(ISavingsAccountRepository savingsAccountRepository, TransferEngine transferEngine) {
+        this(savingsAccountRepository, transferEngine, DEFAULT_CHUNK_SIZE, DEFAULT_PARALLELISM, Mode.ENTITY);
+    }
+
+    public InterestAccrualJob(ISavingsAccountRepository savingsAccountRepository, TransferEngine transferEngine,
+                              int chunkSize, int parallelism, Mode defaultMode) {
+        this(savingsAccountRepository, transferEngine, chunkSize, parallelism, defaultMode, null);
+    }
+
+    public InterestAccrualJob(ISavingsAccountRepository savingsAccountRepository, TransferEngine transferEngine,
+                              int chunkSize, int parallelism, Mode defaultMode, LedgerEngine ledgerEngine) {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("chunkSize and parallelism must be positive.");
+        }
+        this.savingsAccountRepository = savingsAccountRepository;
+        this.transferEngine = transferEngine;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.defaultMode = defaultMode;
+        this.ledgerEngine = ledgerEngine;
+    }
+
+    public Mode getDefaultMode() {
+        return defaultMode;
+    }
+
+    public InterestAccrualResult run(YearMonth period) {
+        return run(period, defaultMode);
+    }
+
+    public InterestAccrualResult run(YearMonth period, Mode mode) {
+        if (ledgerEngine != null && ledgerEngine.isRunning()) {
+            throw new IllegalStateException("Interest accrual can't run while the in-memory ledger is enabled.");
+        }
+        long start = System.nanoTime();
+        long[] bounds = savingsAccountRepository.getIdBounds();
+        if (bounds.length == 0) {
+            return InterestAccrualResult.empty(period);
+        }
+        long minId = bounds[0];
+        long maxId = bounds[1];
+        long totalChunks = (maxId - minId) / chunkSize + 1;
+
+        Progress progress = new Progress(period, totalChunks, start);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "interest-accrual-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<InterestAccrualResult>> chunks = new ArrayList<>();
+        try {
+            for (long fromId = minId; fromId <= maxId; fromId += chunkSize) {
+                long chunkFrom = fromId;
+                long chunkTo = Math.min(maxId, fromId + chunkSize - 1);
+                chunks.add(workers.submit(() -> accrueChunk(period, mode, chunkFrom, chunkTo, progress)));
+            }
+            InterestAccrualResult result = InterestAccrualResult.empty(period);
+            for (Future<InterestAccrualResult> chunk : chunks) {
+                result = result.plus(chunk.get());
+            }
+            return result.withElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interest accrual interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Interest accrual failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    // Um bloco que falha (depois das repetições) não derruba o fechamento: fica contado em failedChunks
+    private InterestAccrualResult accrueChunk(YearMonth period, Mode mode, long fromId, long toId, Progress progress) {
+        InterestAccrualResult chunk;
+        try {
+            chunk = transferEngine.execute(em -> mode == Mode.BULK
+                    ? savingsAccountRepository.accrueInterestInBulk(fromId, toId, period)
+                    : savingsAccountRepository.accrueInterest(fromId, toId, period));
+        } catch (RuntimeException e) {
+            System.err.println("Interest accrual failed for ids " + fromId + ".." + toId + ": " + e.getMessage());
+            chunk = InterestAccrualResult.failedChunk(period);
+        }
+        progress.chunkDone(chunk);
+        return chunk;
+    }
+
+    private static final class Progress {
+        private final YearMonth period;
+        private final long totalChunks;
+        private final long start;
+        private final AtomicLong chunksDone = new AtomicLong();
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong accrued = new AtomicLong();
+        private final AtomicLong lastReport;
+
+        Progress(YearMonth period, long totalChunks, long start) {
+            this.period = period;
+            this.totalChunks = totalChunks;
+            this.start = start;
+            this.lastReport = new AtomicLong(start);
+        }
+
+        void chunkDone(InterestAccrualResult chunk) {
+            long done = chunksDone.incrementAndGet();
+            long scannedNow = scanned.addAndGet(chunk.getScanned());
+            long accruedNow = accrued.addAndGet(chunk.getAccrued());
+            long now = System.nanoTime();
+            long last = lastReport.get();
+            // Só uma thread imprime por intervalo; o último bloco sempre imprime
+            if ((done == totalChunks || (now - last) / 1_000_000 >= PROGRESS_INTERVAL_MILLIS) && lastReport.compareAndSet(last, now)) {
+                double seconds = Math.max(1, now - start) / 1e9;
+                System.out.printf("Interest accrual %s: %d/%d chunks (%.1f%%), %d accounts scanned, %d accrued, %.0f accounts/s%n",
+                        period, done, totalChunks, done * 100.0 / totalChunks, scannedNow, accruedNow, scannedNow / seconds);
+            }
+        }
+    }
+}
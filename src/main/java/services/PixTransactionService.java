@@ -1,59 +1,200 @@
 package services;
 
+import dto.IdempotentResult;
+import dto.PixSettlementRequest;
 import entities.Account;
 import entities.PixKey;
 import entities.PixTransaction;
 import interfaces.IPixTransactionService;
+import ledger.LedgerEngine;
 import repository.PixTransactionRepository;
+import repository.TransferEngine;
+import settlement.PixSettlementPipeline;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public class PixTransactionService implements IPixTransactionService {
 
     private final PixTransactionRepository pixTransactionRepository;
     private final AccountService accountService; // Para buscar contas
     private final PixKeyService pixKeyService;   // Para buscar chaves Pix (se o recebedor for interno)
+    private final TransferEngine transferEngine; // Locks ordenados e repetição em caso de deadlock
+    private final LedgerEngine ledgerEngine;     // Opcional: null mantém o débito/crédito direto no banco
+    private final IdempotencyService idempotencyService; // Opcional: null recusa transferências com chave de idempotência
+    private final PixSettlementPipeline settlementPipeline; // Opcional: null liquida o Pix externo na hora (COMPLETED direto)
 
     public PixTransactionService(PixTransactionRepository pixTransactionRepository,
                                  AccountService accountService,
-                                 PixKeyService pixKeyService) {
+                                 PixKeyService pixKeyService,
+                                 TransferEngine transferEngine) {
+        this(pixTransactionRepository, accountService, pixKeyService, transferEngine, null, null);
+    }
+
+    public PixTransactionService(PixTransactionRepository pixTransactionRepository,
+                                 AccountService accountService,
+                                 PixKeyService pixKeyService,
+                                 TransferEngine transferEngine,
+                                 LedgerEngine ledgerEngine) {
+        this(pixTransactionRepository, accountService, pixKeyService, transferEngine, ledgerEngine, null);
+    }
+
+    public PixTransactionService(PixTransactionRepository pixTransactionRepository,
+                                 AccountService accountService,
+                                 PixKeyService pixKeyService,
+                                 TransferEngine transferEngine,
+                                 LedgerEngine ledgerEngine,
+                                 IdempotencyService idempotencyService) {
+        this(pixTransactionRepository, accountService, pixKeyService, transferEngine, ledgerEngine, idempotencyService, null);
+    }
+
+    public PixTransactionService(PixTransactionRepository pixTransactionRepository,
+                                 AccountService accountService,
+                                 PixKeyService pixKeyService,
+                                 TransferEngine transferEngine,
+                                 LedgerEngine ledgerEngine,
+                                 IdempotencyService idempotencyService,
+                                 PixSettlementPipeline settlementPipeline) {
         this.pixTransactionRepository = pixTransactionRepository;
         this.accountService = accountService;
         this.pixKeyService = pixKeyService;
+        this.transferEngine = transferEngine;
+        this.ledgerEngine = ledgerEngine;
+        this.idempotencyService = idempotencyService;
+        this.settlementPipeline = settlementPipeline;
     }
 
     // NOVO MÉTODO: Orquestra a lógica completa de uma transferência Pix
     @Override
     public void performPixTransfer(String originAccountNumber, String pixKeyUsedValue, String keyTypeUsedString, BigDecimal value) {
-        if (value == null || value.compareTo(BigDecimal.ZERO) <= 0) {
-            System.out.println("Invalid transfer amount.");
+        // 1. Validar o valor e obter o tipo da chave Pix
+        PixKey.PixKeyType keyTypeUsed = validate(keyTypeUsedString, value);
+        if (keyTypeUsed == null) {
             return;
         }
 
-        // 1. Validar e obter o tipo da chave Pix
-        PixKey.PixKeyType keyTypeUsed;
+        // Uma única UnitOfWork para toda a transferência: busca da conta, da chave e o débito/crédito
+        // usam o mesmo EntityManager (uma conexão e um contexto de persistência por transferência).
+        // O TransferEngine abre a unidade e a repete inteira se houver deadlock ou timeout de lock.
+        // Com o ledger, a unidade só faz as buscas; a espera pela confirmação do ledger acontece depois, sem conexão aberta
+        boolean useLedger = isLedgerRunning();
+        try {
+            PixTransaction transferred = transferEngine.execute(em -> transfer(originAccountNumber, pixKeyUsedValue, keyTypeUsed, value, useLedger));
+            if (transferred != null && useLedger && !transferInLedger(transferred)) {
+                return;
+            }
+            if (transferred != null) {
+                System.out.println("Pix transfer initiated successfully: " + value + " to " + pixKeyUsedValue);
+                submitSettlement(transferred);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Pix transfer failed: " + e.getMessage());
+        }
+    }
+
+    // Como performPixTransfer, mas um pedido repetido com a mesma chave devolve o resultado do primeiro sem debitar de novo.
+    // Vazio quando a transferência foi recusada ou falhou (nesse caso a mesma chave pode ser usada de novo).
+    @Override
+    public Optional<IdempotentResult> performPixTransfer(String originAccountNumber, String pixKeyUsedValue, String keyTypeUsedString,
+                                                         BigDecimal value, String idempotencyKey) {
+        if (idempotencyService == null) {
+            System.out.println("Idempotency keys are not enabled.");
+            return Optional.empty();
+        }
+        PixKey.PixKeyType keyTypeUsed = validate(keyTypeUsedString, value);
+        if (keyTypeUsed == null) {
+            return Optional.empty();
+        }
+        String requestHash = IdempotencyService.fingerprint(originAccountNumber, pixKeyUsedValue, keyTypeUsed,
+                value.stripTrailingZeros().toPlainString());
+        AtomicReference<PixTransaction> reserved = new AtomicReference<>(); // Só é lida depois do commit
+        try {
+            IdempotentResult result;
+            if (isLedgerRunning()) {
+                // A chave é gravada depois da confirmação do ledger, e não na mesma unidade (ver executeThenRecord)
+                result = idempotencyService.executeThenRecord(idempotencyKey, IdempotencyService.PIX, requestHash, () -> {
+                    PixTransaction transferred = transferEngine.execute(em -> transfer(originAccountNumber, pixKeyUsedValue, keyTypeUsed, value, true));
+                    if (transferred == null) {
+                        throw new IllegalArgumentException("Pix transfer refused."); // O motivo já foi mostrado
+                    }
+                    LedgerEngine.await(submitToLedger(transferred));
+                    return null; // A PixTransaction é gravada depois pelo LedgerPersister
+                });
+            } else {
+                result = idempotencyService.execute(idempotencyKey, IdempotencyService.PIX, requestHash, em -> {
+                    PixTransaction transferred = transfer(originAccountNumber, pixKeyUsedValue, keyTypeUsed, value, false);
+                    if (transferred == null) {
+                        // O motivo já foi mostrado; a exceção desfaz a unidade e a chave não fica gravada
+                        throw new IllegalArgumentException("Pix transfer refused.");
+                    }
+                    reserved.set(transferred);
+                    return transferred.getId();
+                });
+            }
+            if (result.isReplayed()) {
+                System.out.println("Duplicate request: Pix transfer already initiated on " + result.getCreatedAt() + ".");
+            } else {
+                System.out.println("Pix transfer initiated successfully: " + value + " to " + pixKeyUsedValue);
+                submitSettlement(reserved.get());
+            }
+            return Optional.of(result);
+        } catch (RuntimeException e) {
+            System.out.println("Pix transfer failed: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // Fora da UnitOfWork: a liquidação só pode começar depois que a reserva foi confirmada no banco.
+    // transferred é null no caminho do ledger com chave de idempotência (nada a liquidar).
+    // Se a fila recusar, a PixTransaction continua PENDING e a varredura do pipeline a envia depois.
+    private void submitSettlement(PixTransaction transferred) {
+        if (transferred != null && transferred.getStatus() == PixTransaction.PixTransactionStatus.PENDING && transferred.getId() != null
+                && transferred.getDestinationAccount() == null && settlementPipeline != null) {
+            settlementPipeline.submit(PixSettlementRequest.of(transferred));
+        }
+    }
+
+    // Devolve o tipo da chave, ou null (com a mensagem já mostrada) se o pedido é inválido
+    private static PixKey.PixKeyType validate(String keyTypeUsedString, BigDecimal value) {
+        if (value == null || value.compareTo(BigDecimal.ZERO) <= 0) {
+            System.out.println("Invalid transfer amount.");
+            return null;
+        }
         try {
-            keyTypeUsed = PixKey.PixKeyType.valueOf(keyTypeUsedString.toUpperCase());
+            return PixKey.PixKeyType.valueOf(keyTypeUsedString.toUpperCase());
         } catch (IllegalArgumentException e) {
             System.out.println("Invalid Pix Key Type provided: " + keyTypeUsedString);
-            return;
+            return null;
         }
+    }
+
+    private boolean isLedgerRunning() {
+        return ledgerEngine != null && ledgerEngine.isRunning();
+    }
 
+    // Executado dentro da UnitOfWork aberta em performPixTransfer. Retorna null se a transferência foi recusada.
+    // Com useLedger nada é gravado aqui: a PixTransaction devolvida (id null) vai ao ledger depois do fim da unidade.
+    private PixTransaction transfer(String originAccountNumber, String pixKeyUsedValue, PixKey.PixKeyType keyTypeUsed, BigDecimal value,
+                                    boolean useLedger) {
         // 2. Buscar a conta de origem
         Optional<Account> originAccountOpt = accountService.getByAccountNumber(originAccountNumber);
         if (originAccountOpt.isEmpty()) {
             System.out.println("Origin account not found for Pix transfer.");
-            return;
+            return null;
         }
         Account originAccount = originAccountOpt.get();
 
         // 3. Validar saldo na conta de origem (a validação final ocorre no repositório na transação)
-        if (originAccount.getBalance().compareTo(value) < 0) {
+        // Com o ledger ligado o saldo do banco pode estar atrasado: vale o saldo do ledger
+        BigDecimal originBalance = useLedger ? ledgerEngine.getBalance(originAccount.getId()) : originAccount.getBalance();
+        if (originBalance == null || originBalance.compareTo(value) < 0) {
             System.out.println("Insufficient balance in origin account.");
-            return;
+            return null;
         }
 
         // 4. Buscar a chave Pix de destino (se for uma chave interna ao sistema)
@@ -65,12 +206,12 @@ public class PixTransactionService implements IPixTransactionService {
             destinationAccount = destinationPixKeyOpt.get().getAccount();
             if (destinationAccount == null) {
                 System.out.println("Destination PixKey is linked to a non-existent account. Transfer cancelled.");
-                return;
+                return null;
             }
             // Opcional: Verificar se a PixKey.keyTypeUsed coincide com o informado
             if (!destinationPixKeyOpt.get().getKeyType().equals(keyTypeUsed)) {
                 System.out.println("Provided key type does not match found PixKey. Transfer cancelled.");
-                return;
+                return null;
             }
         } else {
             // A chave Pix não foi encontrada internamente, assumir que é uma chave externa.
@@ -90,15 +231,36 @@ public class PixTransactionService implements IPixTransactionService {
                 PixTransaction.PixTransactionStatus.PENDING // Status inicial
         );
 
-        // 6. Persistir a transação (o repositório fará o débito/crédito e commit/rollback)
+        if (useLedger) {
+            return pixTransaction;
+        }
+
+        // 6. Persistir a transação (o repositório faz o débito/crédito; o commit é feito pela UnitOfWork)
+        if (destinationAccount == null && settlementPipeline != null) {
+            // Chave de outro banco: só reserva (débito + PENDING); o gateway liquida depois, fora do pedido
+            return pixTransactionRepository.reserve(pixTransaction);
+        }
+        return pixTransactionRepository.create(pixTransaction); // Uma falha aqui desfaz toda a unidade
+    }
+
+    // O ledger registra o Pix no journal e só confirma depois do sync; a PixTransaction é gravada em lote pelo LedgerPersister.
+    // Chamado fora da UnitOfWork: a espera pela confirmação não segura uma conexão do pool.
+    private boolean transferInLedger(PixTransaction pixTransaction) {
         try {
-            pixTransactionRepository.create(pixTransaction); // Esta chamada agora debita/credita e persiste
-            System.out.println("Pix transfer initiated successfully: " + value + " to " + pixKeyUsedValue);
+            LedgerEngine.await(submitToLedger(pixTransaction));
+            return true;
         } catch (RuntimeException e) {
             System.out.println("Pix transfer failed: " + e.getMessage());
+            return false;
         }
     }
 
+    private CompletableFuture<Void> submitToLedger(PixTransaction pixTransaction) {
+        long destinationId = pixTransaction.getDestinationAccount() == null ? 0L : pixTransaction.getDestinationAccount().getId();
+        return ledgerEngine.pixTransfer(pixTransaction.getOriginAccount().getId(), destinationId, pixTransaction.getPixKeyUsed(),
+                pixTransaction.getKeyTypeUsed(), pixTransaction.getValue());
+    }
+
     @Override
     public void create(PixTransaction pixTransaction) { // Renomeado de createPixTransaction
         // Este método serve para persistir o objeto PixTransaction APENAS.
@@ -136,4 +298,14 @@ public class PixTransactionService implements IPixTransactionService {
         }
         return pixTransactionRepository.findAllByAccount(accountId);
     }
-}
\ No newline at end of file
+
+    @Override
+    public long streamAll(Long originAccountId, Consumer<PixTransaction> consumer) {
+        try {
+            return pixTransactionRepository.streamAll(originAccountId, consumer);
+        } catch (RuntimeException e) {
+            System.err.println("Error streaming Pix transactions: " + e.getMessage());
+            throw e;
+        }
+    }
+}
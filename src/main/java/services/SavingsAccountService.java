@@ -1,31 +1,57 @@
 package services;
 
+import dto.AccountSummary;
+import dto.InterestAccrualResult;
 import entities.CurrentAccount; // Importar CurrentAccount para a transferência
 import entities.SavingsAccount;
 import interfaces.ISavingsAccountService;
-import jakarta.persistence.EntityManager; // Importar EntityManager para gerenciamento de transação
-import jakarta.persistence.LockModeType; // Importar LockModeType
 import jakarta.persistence.NoResultException; // Importar NoResultException
+import ledger.LedgerEngine;
 import repository.CurrentAccountRepository;
 import repository.SavingsAccountRepository;
-import util.JPAUtil; // Importar JPAUtil
+import repository.TransferEngine;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 
 public class SavingsAccountService implements ISavingsAccountService<SavingsAccount> {
 
+    public static final String TRANSFER_TO_CURRENT_TYPE = "Transfer to current";
+
     private final SavingsAccountRepository savingsAccountRepository;
     private final CurrentAccountRepository currentAccountRepository;
     private final ClientService clientService;
+    private final TransferEngine transferEngine;
+    private final InterestAccrualJob interestAccrualJob;
+    private final LedgerEngine ledgerEngine; // Opcional: ligado, é o dono dos saldos (ver LedgerEngine)
 
     public SavingsAccountService(SavingsAccountRepository savingsAccountRepository,
                                  ClientService clientService,
-                                 CurrentAccountRepository currentAccountRepository) {
+                                 CurrentAccountRepository currentAccountRepository,
+                                 TransferEngine transferEngine,
+                                 InterestAccrualJob interestAccrualJob) {
+        this(savingsAccountRepository, clientService, currentAccountRepository, transferEngine, interestAccrualJob, null);
+    }
+
+    public SavingsAccountService(SavingsAccountRepository savingsAccountRepository,
+                                 ClientService clientService,
+                                 CurrentAccountRepository currentAccountRepository,
+                                 TransferEngine transferEngine,
+                                 InterestAccrualJob interestAccrualJob,
+                                 LedgerEngine ledgerEngine) {
         this.savingsAccountRepository = savingsAccountRepository;
         this.clientService = clientService;
         this.currentAccountRepository = currentAccountRepository;
+        this.transferEngine = transferEngine;
+        this.interestAccrualJob = interestAccrualJob;
+        this.ledgerEngine = ledgerEngine;
+    }
+
+    private boolean isLedgerRunning() {
+        return ledgerEngine != null && ledgerEngine.isRunning();
     }
 
     @Override
@@ -47,6 +73,23 @@ public class SavingsAccountService implements ISavingsAccountService<SavingsAcco
             System.out.println("Savings Account created successfully.");
         } catch (RuntimeException e) {
             System.out.println("Failed to create Savings Account: " + e.getMessage());
+            return;
+        }
+        if (isLedgerRunning()) {
+            openInLedger(account.getAccountNumber());
+        }
+    }
+
+    // Conta criada com o ledger ligado: sem o registro ele recusaria qualquer movimento dela até a próxima inicialização
+    private void openInLedger(String accountNumber) {
+        try {
+            // O create do repositório engole erros: só registra a conta que de fato foi gravada
+            Optional<SavingsAccount> created = savingsAccountRepository.getByAccountNumber(accountNumber);
+            if (created.isPresent()) {
+                LedgerEngine.await(ledgerEngine.openAccount(created.get().getId(), created.get().getBalance()));
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Account " + accountNumber + " was created but could not be registered in the ledger: " + e.getMessage());
         }
     }
 
@@ -70,6 +113,10 @@ public class SavingsAccountService implements ISavingsAccountService<SavingsAcco
             System.out.println("Savings account " + account.getAccountNumber() + " not found for update.");
             return;
         }
+        if (isLedgerRunning() && existingAccount.get().getBalance().compareTo(account.getBalance()) != 0) {
+            System.out.println("Balance can only change through transfers while the in-memory ledger is enabled.");
+            return;
+        }
         try {
             this.savingsAccountRepository.update(account);
             System.out.println("Savings Account updated successfully.");
@@ -94,40 +141,55 @@ public class SavingsAccountService implements ISavingsAccountService<SavingsAcco
 
     @Override
     public void applyInterest(String accountNumber) {
-        EntityManager em = null;
+        if (isLedgerRunning()) {
+            // Os juros creditam direto no banco; com o ledger ligado o saldo dele ficaria para trás
+            System.out.println("Interest can't be applied while the in-memory ledger is enabled.");
+            return;
+        }
         try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-
-            SavingsAccount savings = em.createQuery(
-                            "SELECT s FROM SavingsAccount s WHERE s.accountNumber = :accountNumber", SavingsAccount.class)
-                    .setParameter("accountNumber", accountNumber)
-                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
-                    .getSingleResult();
-
-            BigDecimal interest = savings.getBalance().multiply(savings.getInterestRate());
-            savings.setBalance(savings.getBalance().add(interest));
+            BigDecimal interest = transferEngine.execute(em -> {
+                SavingsAccount savings = em.createQuery(
+                                "SELECT s FROM SavingsAccount s WHERE s.accountNumber = :accountNumber", SavingsAccount.class)
+                        .setParameter("accountNumber", accountNumber)
+                        .getSingleResult();
 
-            em.merge(savings);
-
-            em.getTransaction().commit();
+                // Mesmo com uma única conta o lock passa pelo motor (timeout limitado e repetição em caso de conflito)
+                SavingsAccount locked = (SavingsAccount) transferEngine.lockInOrder(em, savings).get(0);
+                // Mesma rotina do fechamento (arredondamento e extrato "Interest"). Conta como os juros do mês:
+                // o fechamento mensal (accrueMonthlyInterest) pula esta conta
+                return savingsAccountRepository.accrueInterest(locked, LocalDate.now());
+            });
             System.out.println("Interest applied: " + interest);
 
         } catch (NoResultException e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             System.out.println("Savings account not found.");
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             e.printStackTrace();
             System.out.println("Error applying interest: " + e.getMessage());
-        } finally {
-            if (em != null) {
-                em.close();
-            }
+        }
+    }
+
+    // Fechamento de juros do mês para todas as poupanças (ver InterestAccrualJob), no modo configurado no job
+    @Override
+    public InterestAccrualResult accrueMonthlyInterest(YearMonth period) {
+        return accrueMonthlyInterest(period, null);
+    }
+
+    // Modo usado quando accrueMonthlyInterest recebe mode null
+    public InterestAccrualJob.Mode getDefaultInterestAccrualMode() {
+        return interestAccrualJob.getDefaultMode();
+    }
+
+    // mode null = modo padrão do job
+    public InterestAccrualResult accrueMonthlyInterest(YearMonth period, InterestAccrualJob.Mode mode) {
+        if (period == null) {
+            throw new IllegalArgumentException("Period can't be null.");
+        }
+        try {
+            return mode == null ? interestAccrualJob.run(period) : interestAccrualJob.run(period, mode);
+        } catch (RuntimeException e) {
+            System.err.println("Error running interest accrual for " + period + ": " + e.getMessage());
+            throw e;
         }
     }
 
@@ -138,54 +200,55 @@ public class SavingsAccountService implements ISavingsAccountService<SavingsAcco
             return;
         }
 
-        EntityManager em = null;
-        try {
-            em = JPAUtil.getEntityManager();
-            em.getTransaction().begin();
-
-            SavingsAccount savings = em.createQuery(
-                            "SELECT s FROM SavingsAccount s WHERE s.accountNumber = :accountNumber", SavingsAccount.class)
-                    .setParameter("accountNumber", savingsAccountNumber)
-                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
-                    .getSingleResult();
-
-            CurrentAccount current = em.createQuery(
-                            "SELECT c FROM CurrentAccount c WHERE c.accountNumber = :accountNumber", CurrentAccount.class)
-                    .setParameter("accountNumber", currentAccountNumber)
-                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
-                    .getSingleResult();
-
-            if (savings.getBalance().compareTo(amount) < 0) {
-                System.out.println("Insufficient balance in savings account.");
-                em.getTransaction().rollback();
-                return;
-            }
+        if (isLedgerRunning()) {
+            transferInLedger(savingsAccountNumber, currentAccountNumber, amount);
+            return;
+        }
 
-            savings.setBalance(savings.getBalance().subtract(amount));
-            current.setBalance(current.getBalance().add(amount));
+        try {
+            // Mesma ordem de lock (id crescente) do transferToSavings, então transferências opostas não geram deadlock
+            transferEngine.execute(em -> {
+                SavingsAccount savings = em.createQuery(
+                                "SELECT s FROM SavingsAccount s WHERE s.accountNumber = :accountNumber", SavingsAccount.class)
+                        .setParameter("accountNumber", savingsAccountNumber)
+                        .getSingleResult();
 
-            em.merge(savings);
-            em.merge(current);
+                CurrentAccount current = em.createQuery(
+                                "SELECT c FROM CurrentAccount c WHERE c.accountNumber = :accountNumber", CurrentAccount.class)
+                        .setParameter("accountNumber", currentAccountNumber)
+                        .getSingleResult();
 
-            em.getTransaction().commit();
+                return transferEngine.move(em, savings, current, amount);
+            });
 
             System.out.println("Transferred " + amount + " from Savings Account to Current Account.");
 
         } catch (NoResultException e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             System.out.println("One or both accounts not found.");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage()); // Ex: saldo insuficiente (a transação já foi revertida)
         } catch (Exception e) {
-            if (em != null && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
             e.printStackTrace();
             System.out.println("Error during transfer: " + e.getMessage());
-        } finally {
-            if (em != null) {
-                em.close();
-            }
+        }
+    }
+
+    // Com o ledger, a unidade só resolve os ids; o saldo muda no ledger e o LedgerPersister grava depois
+    private void transferInLedger(String savingsAccountNumber, String currentAccountNumber, BigDecimal amount) {
+        try {
+            long[] ids = transferEngine.execute(em -> new long[]{
+                    em.createQuery("SELECT s.id FROM SavingsAccount s WHERE s.accountNumber = :accountNumber", Long.class)
+                            .setParameter("accountNumber", savingsAccountNumber)
+                            .getSingleResult(),
+                    em.createQuery("SELECT c.id FROM CurrentAccount c WHERE c.accountNumber = :accountNumber", Long.class)
+                            .setParameter("accountNumber", currentAccountNumber)
+                            .getSingleResult()});
+            LedgerEngine.await(ledgerEngine.transfer(ids[0], ids[1], amount, TRANSFER_TO_CURRENT_TYPE));
+            System.out.println("Transferred " + amount + " from Savings Account to Current Account.");
+        } catch (NoResultException e) {
+            System.out.println("One or both accounts not found.");
+        } catch (RuntimeException e) {
+            System.out.println("Error during transfer: " + e.getMessage());
         }
     }
 
@@ -193,4 +256,9 @@ public class SavingsAccountService implements ISavingsAccountService<SavingsAcco
     public List<SavingsAccount> getAll() {
         return savingsAccountRepository.getAll();
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<AccountSummary> getAllSummaries() {
+        return savingsAccountRepository.getAllSummaries();
+    }
+}
@@ -1,19 +1,47 @@
 package services;
 
 // Removida importação de EstruturaDeDadosListaEncadeada.TransactionHistory
+import dto.IdempotentResult;
+import dto.TransactionBatchResult;
+import dto.TransactionCursor;
+import dto.TransactionFilter;
+import dto.TransactionPage;
+import dto.TransactionSummary;
 import entities.Transaction;
 import interfaces.ITransactionService;
+import ledger.LedgerEngine;
 import repository.TransactionRepository;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List; // Adicionada importação de List
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class TransactionService implements ITransactionService { // Removido <Transaction> aqui
 
+    public static final int MAX_PAGE_SIZE = 1000; // Limite por página das consultas paginadas
+
     private final TransactionRepository transactionRepository;
+    private final LedgerEngine ledgerEngine; // Opcional: null mantém o caminho síncrono via banco
+    private final IdempotencyService idempotencyService; // Opcional: null recusa create com chave de idempotência
 
     public TransactionService(TransactionRepository transactionRepository) {
+        this(transactionRepository, null, null);
+    }
+
+    public TransactionService(TransactionRepository transactionRepository, LedgerEngine ledgerEngine) {
+        this(transactionRepository, ledgerEngine, null);
+    }
+
+    public TransactionService(TransactionRepository transactionRepository, LedgerEngine ledgerEngine,
+                              IdempotencyService idempotencyService) {
         this.transactionRepository = transactionRepository;
+        this.ledgerEngine = ledgerEngine;
+        this.idempotencyService = idempotencyService;
     }
 
     @Override
@@ -26,6 +54,10 @@ public class TransactionService implements ITransactionService { // Removido <Tr
         // A lógica de saldo e validação já foi movida para o TransactionRepository.create()
         // que garante a atomicidade via transação JPA.
         // Aqui, apenas delegamos. Qualquer erro será propagado do repositório.
+        if (ledgerEngine != null && ledgerEngine.isRunning()) {
+            createInLedger(transaction);
+            return;
+        }
         try {
             this.transactionRepository.create(transaction);
             System.out.println("Transaction created successfully.");
@@ -35,6 +67,101 @@ public class TransactionService implements ITransactionService { // Removido <Tr
         }
     }
 
+    // Como create, mas um pedido repetido com a mesma chave devolve o resultado da primeira execução sem debitar de novo.
+    // Vazio quando a transferência foi recusada ou falhou (nesse caso a mesma chave pode ser usada de novo).
+    @Override
+    public Optional<IdempotentResult> create(Transaction transaction, String idempotencyKey) {
+        if (idempotencyService == null) {
+            System.out.println("Idempotency keys are not enabled.");
+            return Optional.empty();
+        }
+        if (transaction == null || transaction.getOriginAccount() == null || transaction.getDestinationAccount() == null
+                || transaction.getValue() == null) {
+            System.out.println("Failed to create transaction: origin, destination and value are required.");
+            return Optional.empty();
+        }
+        String requestHash = IdempotencyService.fingerprint(transaction.getOriginAccount().getId(),
+                transaction.getDestinationAccount().getId(), transaction.getValue().stripTrailingZeros().toPlainString(),
+                transaction.getTypeTransaction());
+        try {
+            IdempotentResult result;
+            if (ledgerEngine != null && ledgerEngine.isRunning()) {
+                // O ledger confirma depois do sync do journal; a chave é gravada logo em seguida (ver executeThenRecord)
+                result = idempotencyService.executeThenRecord(idempotencyKey, IdempotencyService.TRANSFER, requestHash, () -> {
+                    LedgerEngine.await(ledgerEngine.transfer(transaction.getOriginAccount().getId(),
+                            transaction.getDestinationAccount().getId(), transaction.getValue(), transaction.getTypeTransaction()));
+                    return null; // O registro é gravado depois pelo LedgerPersister
+                });
+            } else {
+                result = idempotencyService.execute(idempotencyKey, IdempotencyService.TRANSFER, requestHash, em -> {
+                    // Participa da UnitOfWork aberta pelo IdempotencyService; o id é o da cópia gravada
+                    return transactionRepository.create(transaction).getId();
+                });
+            }
+            System.out.println(result.isReplayed()
+                    ? "Duplicate request: transaction already created on " + result.getCreatedAt() + "."
+                    : "Transaction created successfully.");
+            return Optional.of(result);
+        } catch (RuntimeException e) {
+            System.out.println("Failed to create transaction: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // Com o ledger ligado o saldo muda em memória e o registro é gravado depois, em lote, pelo LedgerPersister
+    private void createInLedger(Transaction transaction) {
+        if (transaction.getOriginAccount() == null || transaction.getDestinationAccount() == null) {
+            System.out.println("Failed to create transaction: origin and destination accounts are required.");
+            return;
+        }
+        try {
+            LedgerEngine.await(ledgerEngine.transfer(transaction.getOriginAccount().getId(), transaction.getDestinationAccount().getId(),
+                    transaction.getValue(), transaction.getTypeTransaction()));
+            System.out.println("Transaction created successfully.");
+        } catch (RuntimeException e) {
+            System.out.println("Failed to create transaction: " + e.getMessage());
+        }
+    }
+
+    // Lotes grandes (folha de pagamento, arquivos de liquidação): um resultado por item, na ordem recebida
+    @Override
+    public List<TransactionBatchResult> createBatch(List<Transaction> transactions) {
+        if (transactions == null || transactions.isEmpty()) {
+            System.out.println("Transaction batch can't be empty.");
+            return List.of();
+        }
+        List<TransactionBatchResult> results = ledgerEngine != null && ledgerEngine.isRunning()
+                ? createBatchInLedger(transactions)
+                : transactionRepository.createBatch(transactions);
+        long succeeded = results.stream().filter(TransactionBatchResult::isSuccess).count();
+        System.out.println("Transaction batch finished: " + succeeded + " succeeded, " + (results.size() - succeeded) + " failed.");
+        return results;
+    }
+
+    // Envia todos os itens ao ledger de uma vez e só depois espera as confirmações (o writer e o journal agrupam os itens)
+    private List<TransactionBatchResult> createBatchInLedger(List<Transaction> transactions) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            if (transaction == null || transaction.getOriginAccount() == null || transaction.getDestinationAccount() == null) {
+                futures.add(CompletableFuture.failedFuture(
+                        new IllegalArgumentException("Origin and destination accounts are required.")));
+                continue;
+            }
+            futures.add(ledgerEngine.transfer(transaction.getOriginAccount().getId(), transaction.getDestinationAccount().getId(),
+                    transaction.getValue(), transaction.getTypeTransaction()));
+        }
+        List<TransactionBatchResult> results = new ArrayList<>(transactions.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                LedgerEngine.await(futures.get(i));
+                results.add(TransactionBatchResult.ok(i, transactions.get(i)));
+            } catch (RuntimeException e) {
+                results.add(TransactionBatchResult.failed(i, transactions.get(i), e.getMessage()));
+            }
+        }
+        return results;
+    }
+
     @Override
     public Optional<Transaction> getById(long id) {
         if (id <= 0) {
@@ -53,6 +180,77 @@ public class TransactionService implements ITransactionService { // Removido <Tr
         return transactions;
     }
 
+    @Override
+    public TransactionPage<Transaction> getPage(TransactionFilter filter, TransactionCursor after, int pageSize) {
+        if (!isValidPageSize(pageSize)) {
+            return TransactionPage.empty();
+        }
+        return transactionRepository.findPage(filter == null ? TransactionFilter.none() : filter, after, pageSize);
+    }
+
+    @Override
+    public TransactionPage<TransactionSummary> getSummaryPage(TransactionFilter filter, TransactionCursor after, int pageSize) {
+        if (!isValidPageSize(pageSize)) {
+            return TransactionPage.empty();
+        }
+        return transactionRepository.findSummaryPage(filter == null ? TransactionFilter.none() : filter, after, pageSize);
+    }
+
+    // Percorre todas as transações do filtro com no máximo uma página em memória (telas e exportações)
+    @Override
+    public Iterator<Transaction> iterate(TransactionFilter filter, int pageSize) {
+        return pages(cursor -> getPage(filter, cursor, pageSize));
+    }
+
+    @Override
+    public Iterator<TransactionSummary> iterateSummaries(TransactionFilter filter, int pageSize) {
+        return pages(cursor -> getSummaryPage(filter, cursor, pageSize));
+    }
+
+    private static boolean isValidPageSize(int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            System.out.println("Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+            return false;
+        }
+        return true;
+    }
+
+    // A próxima página só é buscada quando a atual termina. Um erro do banco ao buscar uma página é lançado por
+    // hasNext()/next(), e não vira o fim da iteração
+    private static <T> Iterator<T> pages(Function<TransactionCursor, TransactionPage<T>> loader) {
+        return new Iterator<>() {
+            private TransactionPage<T> page = loader.apply(null);
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                if (position == page.getItems().size() && page.hasMore()) {
+                    page = loader.apply(page.getNextCursor());
+                    position = 0;
+                }
+                return position < page.getItems().size();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.getItems().get(position++);
+            }
+        };
+    }
+
+    @Override
+    public long streamAll(TransactionFilter filter, Consumer<Transaction> consumer) {
+        try {
+            return transactionRepository.streamAll(filter == null ? TransactionFilter.none() : filter, consumer);
+        } catch (RuntimeException e) {
+            System.err.println("Error streaming transactions: " + e.getMessage());
+            throw e; // Quem exporta precisa saber que a varredura não terminou
+        }
+    }
+
     @Override
     public void update(Transaction transaction) {
         if (transaction == null) {
@@ -0,0 +1,41 @@
+package settlement;
+
+import dto.PixGatewayResult;
+import dto.PixSettlementRequest;
+import interfaces.IPixGateway;
+
+// Gateway local para desenvolvimento e testes, no lugar do SPI: liquida tudo depois de latencyMillis.
+// Chaves que começam com REJECT_PREFIX são recusadas, para exercitar o estorno sem um gateway de verdade.
+public class LocalPixGateway implements IPixGateway {
+
+    public static final String REJECT_PREFIX = "reject";
+
+    private final long latencyMillis;
+
+    public LocalPixGateway() {
+        this(0);
+    }
+
+    public LocalPixGateway(long latencyMillis) {
+        if (latencyMillis < 0) {
+            throw new IllegalArgumentException("latencyMillis can't be negative.");
+        }
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public PixGatewayResult settle(PixSettlementRequest request) {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Settlement interrupted.", e); // Resultado desconhecido: será reenviada
+            }
+        }
+        if (request.getPixKeyUsed().startsWith(REJECT_PREFIX)) {
+            return PixGatewayResult.rejected("Destination key rejected by the receiving institution.");
+        }
+        return PixGatewayResult.accepted();
+    }
+}
@@ -0,0 +1,334 @@
+package settlement;
+
+import dto.PixGatewayResult;
+import dto.PixSettlementRequest;
+import interfaces.IPixGateway;
+import interfaces.IPixTransactionRepository;
+import repository.TransferEngine;
+import util.LatencyHistogram;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Liquidação assíncrona do Pix para chaves de outros bancos, em etapas:
+//   1. reserva (thread do pedido): PixTransactionRepository.reserve debita a origem e grava PENDING; depois do commit
+//      o serviço chama submit() e responde ao cliente. A latência do pedido é só a da reserva;
+//   2. liquidação (threads "pix-settlement-N"): cada pendente vai ao IPixGateway. Resposta desconhecida (exceção)
+//      é reenviada com espera crescente até maxAttempts; depois disso fica PENDING para a próxima varredura;
+//   3. status (thread "pix-settlement-status"): as respostas são gravadas em lotes de até batchSize, uma transação
+//      por lote: um UPDATE para as aceitas (COMPLETED) e estorno + FAILED para as recusadas.
+// O banco é a fonte da verdade: a fila é só memória. A varredura periódica (e a primeira, no start) reenvia as PENDING
+// que ficaram para trás (queda da aplicação, fila cheia, gateway fora do ar); o gateway deve tolerar reenvios.
+// No máximo capacity liquidações ficam em andamento; além disso submit() devolve false e a varredura pega depois.
+public class PixSettlementPipeline {
+
+    public static final int DEFAULT_WORKERS = 4;
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 200;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+    public static final long DEFAULT_SWEEP_INTERVAL_MILLIS = 30_000;
+    private static final long INITIAL_RETRY_BACKOFF_MILLIS = 200;
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 10_000;
+    private static final long STOP_TIMEOUT_MILLIS = 30_000;
+
+    private static final class Outcome {
+        final PixSettlementRequest request;
+        final PixGatewayResult result;
+
+        Outcome(PixSettlementRequest request, PixGatewayResult result) {
+            this.request = request;
+            this.result = result;
+        }
+    }
+
+    private final IPixTransactionRepository pixTransactionRepository;
+    private final IPixGateway gateway;
+    private final TransferEngine transferEngine;
+    private final int workerCount;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final int maxAttempts;
+    private final long sweepIntervalMillis;
+
+    // Ids entre o submit e a gravação do status: evita que a varredura mande a mesma liquidação duas vezes
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    // Ids gravados desde o início da varredura atual: a consulta da varredura pode ter lido a linha ainda PENDING
+    private final Set<Long> settledSinceSweep = ConcurrentHashMap.newKeySet();
+    private final Semaphore slots;
+    private final BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final LatencyHistogram settleLatency = new LatencyHistogram(); // Da reserva até o status gravado
+
+    // accepting: submit() e a varredura aceitam liquidações novas. writerDone: o writer de status pode sair quando
+    // a fila esvaziar; só é ligado no stop() depois que os workers terminaram, para nenhuma resposta ficar sem gravar.
+    private volatile boolean accepting;
+    private volatile boolean writerDone;
+    private ScheduledExecutorService workers;
+    private ScheduledFuture<?> sweepTask;
+    private Thread statusWriter;
+
+    public PixSettlementPipeline(IPixTransactionRepository pixTransactionRepository, IPixGateway gateway, TransferEngine transferEngine) {
+        this(pixTransactionRepository, gateway, transferEngine, DEFAULT_WORKERS, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE,
+                DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_MAX_ATTEMPTS, DEFAULT_SWEEP_INTERVAL_MILLIS);
+    }
+
+    public PixSettlementPipeline(IPixTransactionRepository pixTransactionRepository, IPixGateway gateway, TransferEngine transferEngine,
+                                 int workerCount, int capacity, int batchSize, long flushIntervalMillis, int maxAttempts,
+                                 long sweepIntervalMillis) {
+        if (workerCount < 1 || capacity < 1 || batchSize < 1 || flushIntervalMillis < 1 || maxAttempts < 1 || sweepIntervalMillis < 1) {
+            throw new IllegalArgumentException("Settlement pipeline settings must be positive.");
+        }
+        this.pixTransactionRepository = pixTransactionRepository;
+        this.gateway = gateway;
+        this.transferEngine = transferEngine;
+        this.workerCount = workerCount;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxAttempts = maxAttempts;
+        this.sweepIntervalMillis = sweepIntervalMillis;
+        this.slots = new Semaphore(capacity);
+    }
+
+    public synchronized void start() {
+        if (accepting) {
+            return;
+        }
+        accepting = true;
+        writerDone = false;
+        AtomicInteger threadCount = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(workerCount, task -> {
+            Thread thread = new Thread(task, "pix-settlement-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        workers = executor;
+        statusWriter = new Thread(this::statusLoop, "pix-settlement-status");
+        statusWriter.setDaemon(true);
+        statusWriter.start();
+        // A primeira varredura recupera o que ficou PENDING antes da última parada
+        sweepTask = workers.scheduleWithFixedDelay(this::sweep, 0, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Para de aceitar liquidações e espera as que estão em andamento (inclusive as novas tentativas) terem o status
+    // gravado, por até STOP_TIMEOUT_MILLIS. O writer só sai depois dos workers, esvaziando a fila; o que não
+    // terminou a tempo fica PENDING e volta ao gateway na varredura da próxima inicialização.
+    public synchronized void stop() {
+        if (!accepting) {
+            return;
+        }
+        accepting = false;
+        sweepTask.cancel(false);
+        try {
+            long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MILLIS;
+            while (getInFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(flushIntervalMillis);
+            }
+            if (getInFlightCount() > 0) {
+                System.err.println("Pix settlement: " + getInFlightCount() + " settlements still running after "
+                        + STOP_TIMEOUT_MILLIS / 1000 + " s; they will be retried on the next start.");
+                workers.shutdownNow();
+            } else {
+                workers.shutdown();
+            }
+            workers.awaitTermination(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        } finally {
+            writerDone = true;
+        }
+        try {
+            statusWriter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return accepting;
+    }
+
+    // Chamado depois do commit da reserva. false: não entrou agora (parado ou cheio), fica para a varredura.
+    public boolean submit(PixSettlementRequest request) {
+        if (!accepting) {
+            return false;
+        }
+        if (!inFlight.add(request.getPixTransactionId())) {
+            return true; // Já está em andamento
+        }
+        if (!slots.tryAcquire()) {
+            inFlight.remove(request.getPixTransactionId());
+            deferred.incrementAndGet();
+            return false;
+        }
+        try {
+            workers.execute(() -> attempt(request, 1));
+        } catch (RuntimeException e) { // RejectedExecutionException: parou entre a verificação e o execute
+            release(request);
+            return false;
+        }
+        submitted.incrementAndGet();
+        return true;
+    }
+
+    private void attempt(PixSettlementRequest request, int attempt) {
+        PixGatewayResult result;
+        try {
+            result = gateway.settle(request);
+        } catch (RuntimeException e) {
+            // Resultado desconhecido: o dinheiro pode ou não ter saído, então nem conclui nem estorna
+            // Durante o stop() as tentativas continuam: o stop() espera por elas até o timeout
+            if (attempt >= maxAttempts) {
+                System.err.println("Pix settlement " + request.getPixTransactionId() + " still unknown after " + attempt
+                        + " attempts, left PENDING: " + e.getMessage());
+                abandoned.incrementAndGet();
+                release(request);
+                return;
+            }
+            retried.incrementAndGet();
+            long backoff = Math.min(MAX_RETRY_BACKOFF_MILLIS, INITIAL_RETRY_BACKOFF_MILLIS << Math.min(attempt - 1, 20));
+            try {
+                workers.schedule(() -> attempt(request, attempt + 1), backoff, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException rejected) { // stop() desistiu de esperar (shutdownNow): continua PENDING
+                abandoned.incrementAndGet();
+                release(request);
+            }
+            return;
+        }
+        outcomes.add(new Outcome(request, result));
+    }
+
+    private void release(PixSettlementRequest request) {
+        inFlight.remove(request.getPixTransactionId());
+        slots.release();
+    }
+
+    // Reenvia as PENDING mais velhas que o intervalo de varredura (as mais novas ainda estão chegando pelo submit)
+    private void sweep() {
+        try {
+            int room = slots.availablePermits();
+            if (room == 0) {
+                return;
+            }
+            settledSinceSweep.clear();
+            LocalDateTime acceptedBefore = LocalDateTime.now().minusNanos(sweepIntervalMillis * 1_000_000L);
+            List<PixSettlementRequest> pending = pixTransactionRepository.findPendingSettlements(acceptedBefore, room);
+            int resubmitted = 0;
+            for (PixSettlementRequest request : pending) {
+                Long id = request.getPixTransactionId();
+                if (!inFlight.contains(id) && !settledSinceSweep.contains(id) && submit(request)) {
+                    resubmitted++;
+                }
+            }
+            if (resubmitted > 0) {
+                System.out.println("Pix settlement: " + resubmitted + " pending settlements resubmitted.");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Pix settlement sweep failed: " + e.getMessage()); // Tenta de novo na próxima varredura
+        }
+    }
+
+    private void statusLoop() {
+        List<Outcome> batch = new ArrayList<>(batchSize);
+        // writerDone só é ligado depois que os workers terminaram: o que está na fila é gravado antes de sair
+        while (!writerDone || !outcomes.isEmpty()) {
+            try {
+                Outcome first = outcomes.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                outcomes.drainTo(batch, batchSize - 1);
+                writeWithRetry(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void writeWithRetry(List<Outcome> batch) throws InterruptedException {
+        while (true) {
+            try {
+                write(batch);
+                break;
+            } catch (RuntimeException e) {
+                // O gateway já respondeu: a resposta não pode ser perdida enquanto a aplicação está no ar
+                System.err.println("Error writing " + batch.size() + " Pix settlement statuses: " + e.getMessage());
+                if (writerDone) {
+                    // Continuam PENDING e voltam ao gateway na próxima inicialização (que deve repetir a mesma resposta)
+                    System.err.println(batch.size() + " Pix settlement statuses were NOT written.");
+                    break;
+                }
+                Thread.sleep(flushIntervalMillis);
+            }
+        }
+        for (Outcome outcome : batch) {
+            settledSinceSweep.add(outcome.request.getPixTransactionId()); // Antes de sair de inFlight
+            release(outcome.request);
+        }
+    }
+
+    private void write(List<Outcome> batch) {
+        List<Long> accepted = new ArrayList<>();
+        List<Long> rejected = new ArrayList<>();
+        for (Outcome outcome : batch) {
+            (outcome.result.isAccepted() ? accepted : rejected).add(outcome.request.getPixTransactionId());
+        }
+        // Uma transação para o lote todo; o TransferEngine repete se o estorno esbarrar no lock de uma transferência
+        int[] written = transferEngine.execute(em -> new int[]{
+                pixTransactionRepository.markCompleted(accepted),
+                pixTransactionRepository.markFailed(rejected)});
+        completed.addAndGet(written[0]);
+        failed.addAndGet(written[1]);
+        LocalDateTime now = LocalDateTime.now();
+        for (Outcome outcome : batch) {
+            settleLatency.record(Duration.between(outcome.request.getAcceptedAt(), now).toNanos() / 1000);
+        }
+    }
+
+    public int getInFlightCount() {
+        return capacity - slots.availablePermits();
+    }
+
+    // Latência de ponta a ponta de cada liquidação gravada: da reserva (acceptedAt) até o status no banco
+    public LatencyHistogram getSettleLatency() {
+        return settleLatency;
+    }
+
+    public String getReport() {
+        return "PixSettlementPipeline{" +
+                "submitted=" + submitted.get() +
+                ", inFlight=" + getInFlightCount() +
+                ", completed=" + completed.get() +
+                ", failed=" + failed.get() +
+                ", retried=" + retried.get() +
+                ", abandoned=" + abandoned.get() +
+                ", deferred=" + deferred.get() +
+                ", settle={" + settleLatency + "}" +
+                '}';
+    }
+}
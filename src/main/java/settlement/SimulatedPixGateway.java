@@ -0,0 +1,265 @@
+package settlement;
+
+import dto.PixGatewayResult;
+import dto.PixSettlementRequest;
+import interfaces.IPixGateway;
+import util.CacheMetrics;
+import util.LatencyHistogram;
+import util.RecentKeyIndex;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Simulador do SPI no próprio processo, para testar e medir o Pix para outros bancos sem nenhum serviço de rede.
+// Cada chamada a settle() passa por:
+//   1. limite de vazão: no máximo maxPerSecond liquidações por segundo (0 = sem limite); acima disso a chamada espera
+//      a sua vez, como numa fila do SPI, e a espera conta para o timeout;
+//   2. latência sorteada da distribuição configurada (fixa, uniforme ou log-normal com mediana e p99);
+//   3. timeout: se fila + latência passar de timeoutMillis, a chamada desiste em timeoutMillis e lança exceção.
+//      O SPI processa a liquidação mesmo assim: o reenvio recebe a resposta já decidida (resultado desconhecido
+//      para quem chamou, como num timeout de rede de verdade);
+//   4. erro: com probabilidade errorRate a chamada falha (indisponível) sem processar nada;
+//   5. resposta: recusada com probabilidade rejectRate ou se a chave começa com LocalPixGateway.REJECT_PREFIX;
+//      aceita nos demais casos. Reenvios do mesmo pixTransactionId repetem a primeira resposta.
+// As latências vistas por quem chamou (incluindo fila e timeouts) ficam em getLatency().
+public class SimulatedPixGateway implements IPixGateway {
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 2_000;
+    private static final int DECIDED_INDEX_SIZE = 200_000;
+    private static final long DECIDED_INDEX_WINDOW_MILLIS = 60 * 60 * 1000;
+
+    // Distribuição da latência de resposta do SPI, em microssegundos
+    public static final class Latency {
+
+        private enum Kind {
+            FIXED, UNIFORM, LOG_NORMAL
+        }
+
+        private final String description;
+        private final Kind kind;
+        private final double a; // fixa: valor; uniforme: mínimo; log-normal: mu
+        private final double b; // uniforme: máximo; log-normal: sigma
+
+        private Latency(String description, Kind kind, double a, double b) {
+            this.description = description;
+            this.kind = kind;
+            this.a = a;
+            this.b = b;
+        }
+
+        public static Latency fixed(double millis) {
+            requireNonNegative(millis);
+            return new Latency("fixed:" + millis, Kind.FIXED, millis * 1000, 0);
+        }
+
+        public static Latency uniform(double minMillis, double maxMillis) {
+            requireNonNegative(minMillis);
+            if (maxMillis < minMillis) {
+                throw new IllegalArgumentException("Maximum latency can't be below the minimum.");
+            }
+            return new Latency("uniform:" + minMillis + "-" + maxMillis, Kind.UNIFORM, minMillis * 1000, maxMillis * 1000);
+        }
+
+        // Cauda longa típica de um serviço remoto: metade das respostas até medianMillis, 1% acima de p99Millis
+        public static Latency logNormal(double medianMillis, double p99Millis) {
+            if (medianMillis <= 0 || p99Millis < medianMillis) {
+                throw new IllegalArgumentException("Log-normal latency needs 0 < median <= p99.");
+            }
+            double sigma = Math.log(p99Millis / medianMillis) / 2.3263; // 2.3263: quantil 99% da normal padrão
+            return new Latency("lognormal:" + medianMillis + "/" + p99Millis, Kind.LOG_NORMAL, Math.log(medianMillis * 1000), sigma);
+        }
+
+        // "fixed:20", "uniform:5-50" ou "lognormal:20/200" (mediana/p99), tudo em milissegundos
+        public static Latency parse(String spec) {
+            String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(":", 2);
+            try {
+                switch (parts[0]) {
+                    case "fixed":
+                        return fixed(Double.parseDouble(parts[1]));
+                    case "uniform": {
+                        String[] range = parts[1].split("-");
+                        return uniform(Double.parseDouble(range[0]), Double.parseDouble(range[1]));
+                    }
+                    case "lognormal": {
+                        String[] quantiles = parts[1].split("/");
+                        return logNormal(Double.parseDouble(quantiles[0]), Double.parseDouble(quantiles[1]));
+                    }
+                    default:
+                        break;
+                }
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                // Mensagem única abaixo
+            }
+            throw new IllegalArgumentException("Invalid latency distribution: " + spec
+                    + " (use fixed:<ms>, uniform:<min>-<max> or lognormal:<median>/<p99>).");
+        }
+
+        long sampleMicros(ThreadLocalRandom random) {
+            switch (kind) {
+                case UNIFORM:
+                    return (long) (a + random.nextDouble() * (b - a));
+                case LOG_NORMAL:
+                    return (long) Math.exp(a + b * random.nextGaussian());
+                default:
+                    return (long) a;
+            }
+        }
+
+        private static void requireNonNegative(double millis) {
+            if (millis < 0) {
+                throw new IllegalArgumentException("Latency can't be negative.");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    private final Latency latency;
+    private final long timeoutMicros;
+    private final double errorRate;
+    private final double rejectRate;
+    private final int maxPerSecond;
+    private final long slotIntervalNanos;
+
+    // Próximo instante livre do SPI (limite de vazão); cada chamada reserva um intervalo a partir dele
+    private final AtomicLong nextSlotNanos = new AtomicLong(System.nanoTime());
+    // Respostas já decididas por pixTransactionId, para que os reenvios recebam a mesma
+    private final RecentKeyIndex<Long, PixGatewayResult> decided =
+            new RecentKeyIndex<>("pix-gateway-simulator", DECIDED_INDEX_SIZE, DECIDED_INDEX_WINDOW_MILLIS, 12);
+
+    private final LatencyHistogram callLatency = new LatencyHistogram();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder throttled = new LongAdder(); // Chamadas que esperaram pelo limite de vazão
+
+    public SimulatedPixGateway(Latency latency) {
+        this(latency, DEFAULT_TIMEOUT_MILLIS, 0, 0, 0);
+    }
+
+    public SimulatedPixGateway(Latency latency, long timeoutMillis, double errorRate, double rejectRate, int maxPerSecond) {
+        if (timeoutMillis < 1 || maxPerSecond < 0) {
+            throw new IllegalArgumentException("timeoutMillis must be positive and maxPerSecond can't be negative.");
+        }
+        if (errorRate < 0 || errorRate > 1 || rejectRate < 0 || rejectRate > 1) {
+            throw new IllegalArgumentException("errorRate and rejectRate must be between 0 and 1.");
+        }
+        this.latency = latency;
+        this.timeoutMicros = timeoutMillis * 1000;
+        this.errorRate = errorRate;
+        this.rejectRate = rejectRate;
+        this.maxPerSecond = maxPerSecond;
+        this.slotIntervalNanos = maxPerSecond == 0 ? 0 : 1_000_000_000L / maxPerSecond;
+    }
+
+    @Override
+    public PixGatewayResult settle(PixSettlementRequest request) {
+        long start = System.nanoTime();
+        try {
+            return process(request, start);
+        } finally {
+            callLatency.recordSince(start);
+        }
+    }
+
+    private PixGatewayResult process(PixSettlementRequest request, long start) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long responseMicros = waitForSlotNanos(start) / 1000 + latency.sampleMicros(random);
+
+        if (random.nextDouble() < errorRate) {
+            sleepUntil(start + Math.min(responseMicros, timeoutMicros) * 1000);
+            errors.increment();
+            throw new IllegalStateException("Simulated SPI unavailable.");
+        }
+
+        // Decidida já na chegada ao SPI: se quem chamou desistir pelo timeout, o reenvio recebe esta mesma resposta
+        PixGatewayResult result = decide(request, random);
+        if (responseMicros > timeoutMicros) {
+            sleepUntil(start + timeoutMicros * 1000);
+            timeouts.increment();
+            throw new IllegalStateException("Simulated SPI timed out after " + timeoutMicros / 1000 + " ms.");
+        }
+        sleepUntil(start + responseMicros * 1000);
+        return result;
+    }
+
+    private PixGatewayResult decide(PixSettlementRequest request, ThreadLocalRandom random) {
+        synchronized (decided) { // Dois reenvios simultâneos não podem receber respostas diferentes
+            PixGatewayResult previous = decided.get(request.getPixTransactionId()).orElse(null);
+            if (previous != null) {
+                replayed.increment();
+                return previous;
+            }
+            PixGatewayResult result = request.getPixKeyUsed().startsWith(LocalPixGateway.REJECT_PREFIX) || random.nextDouble() < rejectRate
+                    ? PixGatewayResult.rejected("Destination key rejected by the receiving institution.")
+                    : PixGatewayResult.accepted();
+            decided.put(request.getPixTransactionId(), result);
+            (result.isAccepted() ? accepted : rejected).increment();
+            return result;
+        }
+    }
+
+    // Quanto esta chamada espera pela sua vez no SPI (0 sem limite de vazão)
+    private long waitForSlotNanos(long now) {
+        if (slotIntervalNanos == 0) {
+            return 0;
+        }
+        while (true) {
+            long next = nextSlotNanos.get();
+            long slot = next - now > 0 ? next : now; // nanoTime pode ser negativo: compara pela diferença
+            if (nextSlotNanos.compareAndSet(next, slot + slotIntervalNanos)) {
+                long wait = slot - now;
+                if (wait > 0) {
+                    throttled.increment();
+                }
+                return wait;
+            }
+        }
+    }
+
+    private static void sleepUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Settlement interrupted."); // Resultado desconhecido: será reenviada
+            }
+        }
+    }
+
+    // Latência de cada chamada vista por quem chamou, incluindo espera pelo limite de vazão e timeouts
+    public LatencyHistogram getLatency() {
+        return callLatency;
+    }
+
+    public CacheMetrics getDecidedIndexMetrics() {
+        return decided.getMetrics();
+    }
+
+    public String getReport() {
+        return "SimulatedPixGateway{" +
+                "latency=" + latency +
+                ", timeoutMs=" + TimeUnit.MICROSECONDS.toMillis(timeoutMicros) +
+                ", errorRate=" + errorRate +
+                ", rejectRate=" + rejectRate +
+                ", maxPerSecond=" + (maxPerSecond == 0 ? "unlimited" : maxPerSecond) +
+                ", accepted=" + accepted.sum() +
+                ", rejected=" + rejected.sum() +
+                ", replayed=" + replayed.sum() +
+                ", timeouts=" + timeouts.sum() +
+                ", errors=" + errors.sum() +
+                ", throttled=" + throttled.sum() +
+                ", calls={" + callLatency + "}" +
+                '}';
+    }
+}
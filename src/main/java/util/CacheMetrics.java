@@ -0,0 +1,81 @@
+package util;
+
+// Fotografia dos contadores de um LruCache em um instante (valores não são atualizados depois de criados)
+public class CacheMetrics {
+
+    private final String name;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long invalidations;
+    private final int size;
+    private final int maxSize;
+
+    public CacheMetrics(String name, long hits, long misses, long evictions, long expirations, long invalidations,
+                        int size, int maxSize) {
+        this.name = name;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+        this.size = size;
+        this.maxSize = maxSize;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    // Removidas por falta de espaço (a menos usada recentemente sai primeiro)
+    public long getEvictions() {
+        return evictions;
+    }
+
+    // Removidas por terem passado do TTL
+    public long getExpirations() {
+        return expirations;
+    }
+
+    // Removidas por escrita no banco (create/update/delete)
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheMetrics{" +
+                "name='" + name + '\'' +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", hitRate=" + String.format("%.2f", getHitRate()) +
+                ", evictions=" + evictions +
+                ", expirations=" + expirations +
+                ", invalidations=" + invalidations +
+                ", size=" + size +
+                ", maxSize=" + maxSize +
+                '}';
+    }
+}
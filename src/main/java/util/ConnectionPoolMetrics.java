@@ -0,0 +1,66 @@
+package util;
+
+// Fotografia do estado do pool de conexões em um instante (valores não são atualizados depois de criados)
+public class ConnectionPoolMetrics {
+
+    private final String poolName;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int totalConnections;
+    private final int threadsAwaitingConnection;
+    private final int minimumIdle;
+    private final int maximumPoolSize;
+
+    public ConnectionPoolMetrics(String poolName, int activeConnections, int idleConnections, int totalConnections,
+                                 int threadsAwaitingConnection, int minimumIdle, int maximumPoolSize) {
+        this.poolName = poolName;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.totalConnections = totalConnections;
+        this.threadsAwaitingConnection = threadsAwaitingConnection;
+        this.minimumIdle = minimumIdle;
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    // Threads bloqueadas esperando conexão: se fica > 0 com frequência, o maximumPoolSize está pequeno
+    public int getThreadsAwaitingConnection() {
+        return threadsAwaitingConnection;
+    }
+
+    public int getMinimumIdle() {
+        return minimumIdle;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPoolMetrics{" +
+                "poolName='" + poolName + '\'' +
+                ", active=" + activeConnections +
+                ", idle=" + idleConnections +
+                ", total=" + totalConnections +
+                ", awaiting=" + threadsAwaitingConnection +
+                ", minIdle=" + minimumIdle +
+                ", maxSize=" + maximumPoolSize +
+                '}';
+    }
+}
@@ -0,0 +1,56 @@
+package util;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.SequenceGenerator;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+// Ids para INSERT ... SELECT de entidades com gerador pooled (@SequenceGenerator com allocationSize).
+// O INSERT em lote do Hibernate busca um id por linha; aqui o id vira uma expressão SQL da própria linha:
+// - tabela de emulação (MySQL): reserva uma faixa contínua avançando next_val de uma vez e numera as linhas
+//   com ROW_NUMBER(). O otimizador pooled entrega os ids [valor lido - allocationSize + 1, valor lido],
+//   então a faixa reservada não cruza com a de nenhum outro EntityManager;
+// - sequência nativa: cada linha chama a sequência e usa o valor lido, que pertence só a ela (gasta um bloco por linha).
+public final class IdBlockAllocator {
+
+    private IdBlockAllocator() {
+    }
+
+    // Expressão do id para uma linha do SELECT. orderBy define a numeração das linhas (ex: "s.id").
+    // count é a quantidade de linhas que o INSERT vai gravar; sobrar ids reservados é permitido (ficam sem uso).
+    public static String idExpression(EntityManager em, Class<?> entity, long count, String orderBy) {
+        SequenceGenerator generator = IdSequenceAligner.generatorOf(entity);
+        Dialect dialect = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        if (dialect.getSequenceSupport().supportsSequences()) {
+            return "(" + dialect.getSequenceSupport().getSelectSequenceNextValString(generator.sequenceName()) + ")";
+        }
+        long first = reserve(generator, count);
+        return "(" + (first - 1) + " + ROW_NUMBER() OVER (ORDER BY " + orderBy + "))";
+    }
+
+    // Em transação própria e curta, como o próprio Hibernate faz: o lock na linha de next_val não fica preso até o
+    // commit de quem chamou, e um rollback depois só deixa um buraco na numeração
+    private static long reserve(SequenceGenerator generator, long count) {
+        int allocationSize = generator.allocationSize();
+        long blocks = (count + allocationSize - 1) / allocationSize + 1; // Um bloco a mais cobre o início da faixa
+        try (EntityManager em = JPAUtil.getEntityManager()) {
+            EntityTransaction tx = em.getTransaction();
+            tx.begin();
+            try {
+                long next = ((Number) em.createNativeQuery("SELECT next_val FROM " + generator.sequenceName() + " FOR UPDATE")
+                        .getSingleResult()).longValue();
+                em.createNativeQuery("UPDATE " + generator.sequenceName() + " SET next_val = ?1")
+                        .setParameter(1, next + blocks * allocationSize)
+                        .executeUpdate();
+                tx.commit();
+                // Os blocos dos valores next, next + allocationSize, ... agora são nossos
+                return Math.max(1, next - allocationSize + 1);
+            } finally {
+                if (tx.isActive()) {
+                    tx.rollback();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package util;
+
+import entities.Account;
+import entities.Card;
+import entities.Client;
+import entities.PixKey;
+import entities.PixTransaction;
+import entities.Transaction;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.SequenceGenerator;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.util.List;
+
+// As tabelas foram criadas com AUTO_INCREMENT (IDENTITY) e já têm linhas; os geradores pooled começam em 1.
+// Na inicialização, cada sequência (ou a tabela que a emula no MySQL) é avançada para depois do maior id existente.
+// Só avança, nunca volta: rodar de novo não muda nada.
+final class IdSequenceAligner {
+
+    private static final List<Class<?>> ENTITIES = List.of(
+            Account.class, Card.class, Client.class, Transaction.class, PixKey.class, PixTransaction.class);
+
+    private IdSequenceAligner() {
+    }
+
+    static void align(EntityManagerFactory emf) {
+        Dialect dialect = emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        boolean nativeSequences = dialect.getSequenceSupport().supportsSequences();
+        UnitOfWork.run(em -> {
+            for (Class<?> entity : ENTITIES) {
+                SequenceGenerator generator = generatorOf(entity);
+                Long maxId = em.createQuery("SELECT MAX(e.id) FROM " + entity.getSimpleName() + " e", Long.class)
+                        .getSingleResult();
+                if (maxId == null) {
+                    continue;
+                }
+                // O otimizador pooled usa o valor lido como topo do bloco: folga de um bloco inteiro
+                long target = maxId + generator.allocationSize() + 1;
+                if (nativeSequences) {
+                    alignSequence(em, dialect, generator.sequenceName(), target);
+                } else {
+                    // Tabela de emulação criada pelo Hibernate: uma linha com a coluna next_val
+                    em.createNativeQuery("UPDATE " + generator.sequenceName() + " SET next_val = ?1 WHERE next_val < ?1")
+                            .setParameter(1, target)
+                            .executeUpdate();
+                }
+            }
+        });
+    }
+
+    private static void alignSequence(EntityManager em, Dialect dialect, String sequenceName, long target) {
+        Number next = (Number) em.createNativeQuery(dialect.getSequenceSupport().getSequenceNextValString(sequenceName))
+                .getSingleResult();
+        if (next.longValue() < target) {
+            em.createNativeQuery("ALTER SEQUENCE " + sequenceName + " RESTART WITH " + target).executeUpdate();
+        }
+    }
+
+    static SequenceGenerator generatorOf(Class<?> entity) {
+        try {
+            SequenceGenerator generator = entity.getDeclaredField("id").getAnnotation(SequenceGenerator.class);
+            if (generator == null) {
+                throw new IllegalStateException(entity.getSimpleName() + ".id has no @SequenceGenerator.");
+            }
+            return generator;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(entity.getSimpleName() + " has no id field.", e);
+        }
+    }
+}
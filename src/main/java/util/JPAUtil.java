@@ -1,22 +1,45 @@
 package util;
 
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 public class JPAUtil {
     // Fábrica, é o objeto que gerencia as operações do banco, como o CRUD, transações e consultas, como se fosse a conexão com o banco.
     private static EntityManagerFactory emf;
 
+    // Prefixo das propriedades do pool (HikariCP) aceitas como override via System properties
+    private static final String POOL_PROPERTY_PREFIX = "hibernate.hikari.";
+
     public static void init(String user, String password) {
+        init(user, password, Map.of());
+    }
+
+    // Permite ajustar o pool (ex: "hibernate.hikari.maximumPoolSize" -> "20") sem editar o persistence.xml
+    public static void init(String user, String password, Map<String, String> poolOverrides) {
         Map<String, String> configOverrides = new HashMap<>();
         configOverrides.put("jakarta.persistence.jdbc.user", user);
         configOverrides.put("jakarta.persistence.jdbc.password", password);
 
+        // -Dhibernate.hikari.maximumPoolSize=20 na linha de comando tem efeito igual ao mapa recebido
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith(POOL_PROPERTY_PREFIX))
+                .forEach(name -> configOverrides.put(name, System.getProperty(name)));
+        configOverrides.putAll(poolOverrides);
+
         emf = Persistence.createEntityManagerFactory("inovabank", configOverrides);
+        // O esquema vem das migrações versionadas em db/migration (antes era o hbm2ddl.auto=update)
+        SchemaMigrator.migrate(emf);
+        // Geradores de id pooled: avança as sequências para depois dos ids criados quando as tabelas usavam IDENTITY
+        IdSequenceAligner.align(emf);
     }
 
     public static EntityManager getEntityManager() {
@@ -26,6 +49,32 @@ public class JPAUtil {
         return emf.createEntityManager();
     }
 
+    // Métricas do pool de conexões. Vazio se o JPAUtil não foi inicializado ou se o provider não for o HikariCP.
+    public static Optional<ConnectionPoolMetrics> getPoolMetrics() {
+        if (emf == null || !emf.isOpen()) {
+            return Optional.empty();
+        }
+        ConnectionProvider provider = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(ConnectionProvider.class);
+        if (provider == null || !provider.isUnwrappableAs(HikariDataSource.class)) {
+            return Optional.empty();
+        }
+        HikariDataSource dataSource = provider.unwrap(HikariDataSource.class);
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new ConnectionPoolMetrics(
+                dataSource.getPoolName(),
+                pool.getActiveConnections(),
+                pool.getIdleConnections(),
+                pool.getTotalConnections(),
+                pool.getThreadsAwaitingConnection(),
+                dataSource.getMinimumIdle(),
+                dataSource.getMaximumPoolSize()));
+    }
+
     // NOVO MÉTODO: Para fechar a fábrica de entidades
     public static void closeEntityManagerFactory() {
         if (emf != null && emf.isOpen()) {
@@ -0,0 +1,111 @@
+package util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Cache em memória limitado por tamanho (LRU) e por tempo de vida (TTL) de cada entrada.
+// Guarda também resultados vazios (Optional.empty()), para que buscas repetidas por algo inexistente não voltem ao banco.
+// Invalidações contam como "gerações": um valor carregado do banco antes de uma invalidação não é guardado depois dela,
+// então uma leitura lenta nunca recoloca no cache um valor que uma escrita acabou de substituir.
+public class LruCache<K, V> {
+
+    private static final class Entry<V> {
+        final Optional<V> value;
+        final long expiresAtNanos;
+
+        Entry(Optional<V> value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    // Protegidos pelo lock do próprio cache
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+    private long generation;
+
+    public LruCache(String name, int maxSize, long ttlMillis) {
+        if (maxSize < 1 || ttlMillis < 1) {
+            throw new IllegalArgumentException("maxSize and ttlMillis must be positive.");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        // accessOrder = true: cada get move a entrada para o fim, então a mais antiga é a menos usada
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Devolve o valor em cache ou carrega com loader (fora do lock, para não serializar idas ao banco)
+    public Optional<V> get(K key, Function<K, Optional<V>> loader) {
+        long startGeneration;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.expiresAtNanos < 0) {
+                    hits++;
+                    return entry.value;
+                }
+                entries.remove(key);
+                expirations++;
+            }
+            misses++;
+            startGeneration = generation;
+        }
+        Optional<V> loaded = loader.apply(key);
+        synchronized (this) {
+            if (generation == startGeneration) {
+                entries.put(key, new Entry<>(loaded, System.nanoTime() + ttlNanos));
+            }
+        }
+        return loaded;
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        if (entries.remove(key) != null) {
+            invalidations++;
+        }
+    }
+
+    // Remove as entradas cujo valor atende ao filtro (ex: a mesma entidade guardada com outra chave)
+    public synchronized void invalidateIf(Predicate<V> filter) {
+        generation++;
+        entries.values().removeIf(entry -> {
+            boolean matches = entry.value.isPresent() && filter.test(entry.value.get());
+            if (matches) {
+                invalidations++;
+            }
+            return matches;
+        });
+    }
+
+    public synchronized void clear() {
+        generation++;
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    public synchronized CacheMetrics getMetrics() {
+        return new CacheMetrics(name, hits, misses, evictions, expirations, invalidations, entries.size(), maxSize);
+    }
+}
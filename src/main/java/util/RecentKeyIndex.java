@@ -0,0 +1,103 @@
+package util;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+
+// Índice em memória das chaves vistas recentemente, dividido em baldes de tempo.
+// Cada put entra no balde mais novo; um balde novo começa a cada windowMillis / bucketCount ou quando o atual enche.
+// Quando um balde passa da janela (ou quando há baldes demais), ele sai inteiro de uma vez: não há TTL por entrada
+// nem reordenação a cada acesso, e a memória fica limitada a cerca de maxSize entradas.
+// Uma chave fica no índice por pelo menos windowMillis - windowMillis / bucketCount, salvo se sair antes por falta
+// de espaço. O índice não é a fonte da verdade: quem usa volta ao banco quando a chave não está aqui.
+public class RecentKeyIndex<K, V> {
+
+    private static final class Bucket<K, V> {
+        final long startNanos;
+        final Map<K, V> entries = new HashMap<>();
+
+        Bucket(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final int bucketCount;
+    private final int bucketCapacity;
+    private final long windowNanos;
+    private final long bucketSpanNanos;
+    private final ArrayDeque<Bucket<K, V>> buckets = new ArrayDeque<>(); // Mais antigo no início
+
+    // Protegidos pelo lock do próprio índice
+    private int size;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public RecentKeyIndex(String name, int maxSize, long windowMillis, int bucketCount) {
+        if (maxSize < 1 || windowMillis < 1 || bucketCount < 1) {
+            throw new IllegalArgumentException("maxSize, windowMillis and bucketCount must be positive.");
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.bucketCount = bucketCount;
+        this.bucketCapacity = (maxSize + bucketCount - 1) / bucketCount;
+        this.windowNanos = windowMillis * 1_000_000L;
+        this.bucketSpanNanos = Math.max(1, windowNanos / bucketCount);
+    }
+
+    public synchronized Optional<V> get(K key) {
+        expire(System.nanoTime());
+        // Do mais novo para o mais antigo: uma chave regravada vale pela versão mais recente
+        Iterator<Bucket<K, V>> newestFirst = buckets.descendingIterator();
+        while (newestFirst.hasNext()) {
+            V value = newestFirst.next().entries.get(key);
+            if (value != null) {
+                hits++;
+                return Optional.of(value);
+            }
+        }
+        misses++;
+        return Optional.empty();
+    }
+
+    public synchronized void put(K key, V value) {
+        long now = System.nanoTime();
+        expire(now);
+        Bucket<K, V> current = buckets.peekLast();
+        if (current == null || now - current.startNanos >= bucketSpanNanos || current.entries.size() >= bucketCapacity) {
+            current = new Bucket<>(now);
+            buckets.addLast(current);
+            while (buckets.size() > bucketCount) {
+                Bucket<K, V> oldest = buckets.removeFirst();
+                size -= oldest.entries.size();
+                evictions += oldest.entries.size();
+            }
+        }
+        if (current.entries.put(key, value) == null) {
+            size++;
+        }
+    }
+
+    private void expire(long now) {
+        while (!buckets.isEmpty() && now - buckets.peekFirst().startNanos >= windowNanos) {
+            Bucket<K, V> expired = buckets.removeFirst();
+            size -= expired.entries.size();
+            expirations += expired.entries.size();
+        }
+    }
+
+    public synchronized void clear() {
+        buckets.clear();
+        size = 0;
+    }
+
+    // Mesmos contadores do LruCache; invalidations fica sempre 0 (entradas só saem por tempo ou espaço)
+    public synchronized CacheMetrics getMetrics() {
+        return new CacheMetrics(name, hits, misses, evictions, expirations, 0, size, maxSize);
+    }
+}
@@ -0,0 +1,94 @@
+package util;
+
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import org.hibernate.StaleStateException;
+import org.hibernate.exception.LockAcquisitionException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Executa uma operação repetindo-a, com espera crescente (backoff exponencial + jitter),
+// enquanto a falha for considerada temporária (por padrão: conflitos de concorrência no banco).
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double multiplier;
+    private final Predicate<Throwable> retryable;
+
+    public RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, double multiplier) {
+        this(maxAttempts, initialBackoffMillis, maxBackoffMillis, multiplier, RetryPolicy::isConcurrencyConflict);
+    }
+
+    public RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, double multiplier,
+                       Predicate<Throwable> retryable) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1.");
+        }
+        if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis || multiplier < 1.0) {
+            throw new IllegalArgumentException("Invalid backoff configuration.");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.multiplier = multiplier;
+        this.retryable = retryable;
+    }
+
+    // 5 tentativas, começando em 10 ms e dobrando até 200 ms
+    public static RetryPolicy defaults() {
+        return new RetryPolicy(5, 10, 200, 2.0);
+    }
+
+    public <T> T execute(Supplier<T> work) {
+        long backoff = initialBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.get();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !retryable.test(e)) {
+                    throw e;
+                }
+                System.err.println("Concurrency conflict on attempt " + attempt + ", retrying: " + e.getMessage());
+                sleep(backoff);
+                backoff = Math.min(maxBackoffMillis, (long) (backoff * multiplier));
+            }
+        }
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    // Conflitos que desaparecem ao repetir a transação: versão desatualizada (@Version), deadlock ou timeout de lock.
+    // Percorre as causas porque o commit costuma embrulhar a exceção original em RollbackException.
+    public static boolean isConcurrencyConflict(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockException
+                    || t instanceof StaleStateException
+                    || t instanceof PessimisticLockException
+                    || t instanceof LockTimeoutException
+                    || t instanceof LockAcquisitionException
+                    || t instanceof org.hibernate.PessimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sleep(long backoff) {
+        if (backoff <= 0) {
+            return;
+        }
+        try {
+            // Jitter: espera entre metade e o valor cheio, para as transações concorrentes não colidirem de novo
+            Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
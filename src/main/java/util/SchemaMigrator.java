@@ -0,0 +1,278 @@
+package util;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.tool.schema.spi.SchemaManagementException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Migrações versionadas do esquema (substituem o hbm2ddl.auto=update).
+// Cada script em db/migration/V<versão>__<descrição>.sql roda uma única vez, em ordem de versão, e fica registrado
+// em schema_history com o checksum: alterar um script já aplicado impede a inicialização (crie uma nova versão).
+// Bancos criados pelo hbm2ddl antes das migrações (tabelas existem, schema_history não) recebem a V1 como aplicada
+// sem executá-la, depois de ganharem o que a V1 tem e eles não (ver upgradeLegacySchema).
+// Depois das migrações o Hibernate compara o esquema com os mapeamentos.
+// Se o hbm2ddl.auto estiver ligado (ex: H2 com create nos testes), quem cuida do esquema é o Hibernate e nada roda aqui.
+// DDL no MySQL não é transacional: se um script falhar no meio, corrija o banco à mão antes de subir de novo.
+final class SchemaMigrator {
+
+    private static final String LOCATION = "db/migration/";
+    // Em ordem de versão; uma migração nova entra no fim da lista
+    private static final List<String> MIGRATIONS = List.of(
+            "V1__baseline.sql",
+            "V2__hot_path_indexes.sql",
+            "V3__idempotency_keys.sql",
+            "V4__pix_settlement.sql");
+
+    private static final String HISTORY_TABLE = "schema_history";
+    private static final String BASELINE_MARKER_TABLE = "clients"; // Existe em qualquer banco criado pelo hbm2ddl
+
+    // O que a V1 tem e um banco do hbm2ddl anterior a ela (ex: os dumps de inovabankDATA) pode não ter:
+    // a coluna de versão otimista, as tabelas que emulam as sequências e o checkpoint do ledger
+    private static final String[][] LEGACY_VERSION_COLUMNS = {{"Account", "version"}, {"cards", "version"}};
+    private static final List<String> LEGACY_SEQUENCE_TABLES = List.of(
+            "clients_seq", "account_seq", "cards_seq", "pix_keys_seq", "transactions_seq", "pix_transactions_seq");
+    private static final String LEDGER_CHECKPOINT_TABLE = "ledger_checkpoint";
+
+    private SchemaMigrator() {
+    }
+
+    static void migrate(EntityManagerFactory emf) {
+        Object auto = emf.getProperties().get("hibernate.hbm2ddl.auto");
+        if (auto != null && !"none".equals(auto) && !"validate".equals(auto)) {
+            return;
+        }
+        SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        ConnectionProvider provider = sessionFactory.getServiceRegistry().getService(ConnectionProvider.class);
+        try {
+            Connection connection = provider.getConnection();
+            boolean autoCommit = connection.getAutoCommit();
+            try {
+                connection.setAutoCommit(true);
+                migrate(connection);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                provider.closeConnection(connection);
+            }
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Database migration failed: " + e.getMessage(), e);
+        }
+        // Entidade e migração fora de sincronia aparecem aqui, e não no meio de uma operação.
+        // Só avisa: a comparação de tipos depende do driver (ex: colunas enum) e não deve impedir a aplicação de subir.
+        try {
+            emf.unwrap(SessionFactory.class).getSchemaManager().validateMappedObjects();
+        } catch (SchemaManagementException e) {
+            System.err.println("Schema validation warning: " + e.getMessage());
+        }
+    }
+
+    private static void migrate(Connection connection) throws SQLException, IOException {
+        boolean hasHistory = tableExists(connection, HISTORY_TABLE);
+        boolean legacySchema = !hasHistory && tableExists(connection, BASELINE_MARKER_TABLE);
+        if (!hasHistory) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table " + HISTORY_TABLE + " (version integer not null, description varchar(200) not null,"
+                        + " checksum bigint not null, applied_on timestamp not null, execution_ms bigint not null, primary key (version))");
+            }
+        }
+        Map<Integer, Long> applied = appliedChecksums(connection);
+
+        for (String script : MIGRATIONS) {
+            int version = versionOf(script);
+            String sql = load(script);
+            long checksum = checksum(sql);
+            Long appliedChecksum = applied.get(version);
+            if (appliedChecksum != null) {
+                if (appliedChecksum != checksum) {
+                    throw new IllegalStateException("Migration " + script + " was changed after being applied to this database.");
+                }
+                continue;
+            }
+            long start = System.nanoTime();
+            if (version == 1 && legacySchema) {
+                System.out.println("Existing schema found: recording " + script + " as baseline.");
+                upgradeLegacySchema(connection);
+            } else {
+                System.out.println("Applying migration " + script + "...");
+                for (String statementSql : statements(sql)) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute(statementSql);
+                    } catch (SQLException e) {
+                        throw new SQLException(script + ": " + e.getMessage() + " [" + statementSql + "]", e.getSQLState(), e);
+                    }
+                }
+            }
+            record(connection, version, descriptionOf(script), checksum, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // Completa um esquema anterior às migrações até o estado da V1. Cada passo confere antes se falta, então o que
+    // o banco já tiver (ex: version criada por um hbm2ddl mais novo) fica como está. As sequências começam em 1;
+    // o IdSequenceAligner as avança para depois dos ids existentes logo em seguida.
+    private static void upgradeLegacySchema(Connection connection) throws SQLException {
+        List<String> added = new ArrayList<>();
+        for (String[] column : LEGACY_VERSION_COLUMNS) {
+            String table = actualTableName(connection, column[0]);
+            if (table == null) {
+                throw new IllegalStateException("Existing schema has no " + column[0] + " table and can't be baselined as "
+                        + MIGRATIONS.get(0) + ". Restore the full dump or start from an empty database.");
+            }
+            if (!columnExists(connection, table, column[1])) {
+                // As linhas antigas começam na versão 0, como se tivessem acabado de ser inseridas pelo Hibernate
+                execute(connection, "alter table " + table + " add column " + column[1] + " bigint not null default 0");
+                added.add(table + "." + column[1]);
+            }
+        }
+        for (String sequenceTable : LEGACY_SEQUENCE_TABLES) {
+            if (actualTableName(connection, sequenceTable) == null) {
+                execute(connection, "create table " + sequenceTable + " (next_val bigint) engine=InnoDB");
+                added.add(sequenceTable);
+            }
+            if (isEmpty(connection, sequenceTable)) { // Sem a linha o gerador pooled não tem de onde ler
+                execute(connection, "insert into " + sequenceTable + " values (1)");
+            }
+        }
+        if (actualTableName(connection, LEDGER_CHECKPOINT_TABLE) == null) {
+            execute(connection, "create table " + LEDGER_CHECKPOINT_TABLE
+                    + " (id bigint not null, last_sequence bigint not null, primary key (id)) engine=InnoDB");
+            added.add(LEDGER_CHECKPOINT_TABLE);
+        }
+        if (!added.isEmpty()) {
+            System.out.println("Upgraded existing schema to the baseline: added " + String.join(", ", added) + ".");
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new SQLException("Baseline upgrade: " + e.getMessage() + " [" + sql + "]", e.getSQLState(), e);
+        }
+    }
+
+    private static boolean isEmpty(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("select count(*) from " + table)) {
+            return !rows.next() || rows.getLong(1) == 0;
+        }
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        return actualTableName(connection, table) != null;
+    }
+
+    // Nome da tabela como o banco guarda, ou null se não existir.
+    // O MySQL no Windows guarda os nomes em minúsculas: compara sem diferenciar maiúsculas
+    private static String actualTableName(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, "%", new String[]{"TABLE"})) {
+            while (tables.next()) {
+                if (tables.getString("TABLE_NAME").equalsIgnoreCase(table)) {
+                    return tables.getString("TABLE_NAME");
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, table, "%")) {
+            while (columns.next()) {
+                if (columns.getString("COLUMN_NAME").equalsIgnoreCase(column)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Map<Integer, Long> appliedChecksums(Connection connection) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("select version, checksum from " + HISTORY_TABLE)) {
+            while (rows.next()) {
+                applied.put(rows.getInt(1), rows.getLong(2));
+            }
+        }
+        return applied;
+    }
+
+    private static void record(Connection connection, int version, String description, long checksum, long executionMs) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("insert into " + HISTORY_TABLE
+                + " (version, description, checksum, applied_on, execution_ms) values (?, ?, ?, ?, ?)")) {
+            insert.setInt(1, version);
+            insert.setString(2, description);
+            insert.setLong(3, checksum);
+            insert.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            insert.setLong(5, executionMs);
+            insert.executeUpdate();
+        }
+    }
+
+    private static String load(String script) throws IOException {
+        try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(LOCATION + script)) {
+            if (in == null) {
+                throw new IOException("Migration script " + LOCATION + script + " not found on the classpath.");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Um comando por ";" no fim da linha; linhas começando com "--" são comentários
+    private static List<String> statements(String sql) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : sql.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(current.length() == 0 ? "" : " ").append(trimmed);
+            if (trimmed.endsWith(";")) {
+                current.setLength(current.length() - 1);
+                statements.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            statements.add(current.toString());
+        }
+        return statements;
+    }
+
+    // Só o conteúdo executável entra no checksum: editar comentários não invalida uma migração aplicada
+    private static long checksum(String sql) {
+        CRC32 crc = new CRC32();
+        for (String statement : statements(sql)) {
+            crc.update(statement.getBytes(StandardCharsets.UTF_8));
+        }
+        return crc.getValue();
+    }
+
+    private static int versionOf(String script) {
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+
+    private static String descriptionOf(String script) {
+        return script.substring(script.indexOf("__") + 2, script.length() - ".sql".length()).replace('_', ' ').toLowerCase(Locale.ROOT);
+    }
+}
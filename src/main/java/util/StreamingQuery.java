@@ -0,0 +1,58 @@
+package util;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Varredura de consultas grandes em memória constante (exportação, conciliação).
+// - getResultStream() lê o ResultSet só para frente, em blocos de fetchSize linhas
+//   (no MySQL isso exige useCursorFetch=true na URL, ver persistence.xml; sem isso o driver traz tudo de uma vez);
+// - as entidades são carregadas como somente leitura (sem cópia para dirty checking);
+// - a cada clearInterval linhas o contexto de persistência é limpo, então as entidades já entregues podem ser coletadas.
+// Usa um EntityManager próprio, e não o da UnitOfWork ativa: o clear() desanexaria as entidades de quem chamou.
+// As entidades entregues ao consumer ficam desanexadas depois do próximo clear(): não guarde nem altere.
+public final class StreamingQuery {
+
+    public static final int DEFAULT_FETCH_SIZE = 500;
+    public static final int DEFAULT_CLEAR_INTERVAL = 500;
+
+    private StreamingQuery() {
+    }
+
+    // Retorna quantas linhas foram entregues ao consumer
+    public static <T> long forEach(Function<EntityManager, TypedQuery<T>> queryFactory, int fetchSize, int clearInterval,
+                                   Consumer<? super T> consumer) {
+        if (fetchSize < 1 || clearInterval < 1) {
+            throw new IllegalArgumentException("fetchSize and clearInterval must be positive.");
+        }
+        try (EntityManager em = JPAUtil.getEntityManager()) {
+            // Transação só para manter a mesma conexão (e o cursor aberto) durante toda a leitura
+            EntityTransaction tx = em.getTransaction();
+            tx.begin();
+            try {
+                TypedQuery<T> query = queryFactory.apply(em)
+                        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                        .setHint(HibernateHints.HINT_READ_ONLY, true);
+                long count = 0;
+                try (Stream<T> rows = query.getResultStream()) {
+                    Iterator<T> iterator = rows.iterator();
+                    while (iterator.hasNext()) {
+                        consumer.accept(iterator.next());
+                        if (++count % clearInterval == 0) {
+                            em.clear();
+                        }
+                    }
+                }
+                return count;
+            } finally {
+                tx.rollback(); // Nada foi alterado
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package util;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Unidade de trabalho: um único EntityManager (e uma única transação) por operação de negócio.
+// O serviço abre a unidade com execute/run e todos os repositórios chamados dentro dela
+// usam o mesmo EntityManager através de read/write, em vez de abrir um novo a cada método.
+public final class UnitOfWork {
+
+    // EntityManager da unidade ativa na thread atual (null se nenhuma unidade foi aberta)
+    private static final ThreadLocal<EntityManager> CURRENT = new ThreadLocal<>();
+
+    private UnitOfWork() {
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    // Abre uma unidade (ou participa da que já está aberta) e faz commit no final da mais externa.
+    public static <T> T execute(Function<EntityManager, T> work) {
+        EntityManager joined = CURRENT.get();
+        if (joined != null) {
+            // Unidade aninhada: quem abriu primeiro decide commit/rollback
+            try {
+                return work.apply(joined);
+            } catch (RuntimeException e) {
+                markRollbackOnly(joined);
+                throw e;
+            }
+        }
+
+        EntityManager em = JPAUtil.getEntityManager();
+        CURRENT.set(em);
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            T result = work.apply(em);
+            // Um repositório pode ter falhado e engolido a exceção; nesse caso nada é gravado
+            if (tx.getRollbackOnly()) {
+                tx.rollback();
+            } else {
+                tx.commit();
+            }
+            return result;
+        } catch (RuntimeException e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            CURRENT.remove();
+            em.close();
+        }
+    }
+
+    public static void run(Consumer<EntityManager> work) {
+        execute(em -> {
+            work.accept(em);
+            return null;
+        });
+    }
+
+    // Leitura usada pelos repositórios: reaproveita a unidade ativa ou usa um EntityManager próprio.
+    public static <T> T read(Function<EntityManager, T> work) {
+        EntityManager joined = CURRENT.get();
+        if (joined != null) {
+            return work.apply(joined);
+        }
+        try (EntityManager em = JPAUtil.getEntityManager()) {
+            return work.apply(em);
+        }
+    }
+
+    // Escrita usada pelos repositórios: dentro de uma unidade apenas participa dela
+    // (uma falha marca a unidade inteira para rollback); fora dela abre e fecha sua própria transação.
+    public static void write(Consumer<EntityManager> work) {
+        EntityManager joined = CURRENT.get();
+        if (joined != null) {
+            try {
+                work.accept(joined);
+            } catch (RuntimeException e) {
+                markRollbackOnly(joined);
+                throw e;
+            }
+            return;
+        }
+
+        EntityManager em = JPAUtil.getEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            work.accept(em);
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void markRollbackOnly(EntityManager em) {
+        if (em.getTransaction().isActive()) {
+            em.getTransaction().setRollbackOnly();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package view;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Scanner;
+
+// Mostra listas longas no console uma página por vez.
+// Cada item é convertido em texto só quando a página dele é escrita, e a página inteira vai para o console
+// de uma vez (saída bufferizada); entre as páginas o usuário decide se continua.
+class ConsolePager {
+
+    static final int DEFAULT_PAGE_SIZE = 20;
+
+    private final Scanner scanner;
+    private final int pageSize;
+
+    ConsolePager(Scanner scanner) {
+        this(scanner, DEFAULT_PAGE_SIZE);
+    }
+
+    ConsolePager(Scanner scanner, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive.");
+        }
+        this.scanner = scanner;
+        this.pageSize = pageSize;
+    }
+
+    // Retorna quantos itens foram mostrados
+    int show(Iterator<?> items) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+        int shown = 0;
+        try {
+            while (items.hasNext()) {
+                for (int i = 0; i < pageSize && items.hasNext(); i++) {
+                    out.write(String.valueOf(items.next()));
+                    out.write(System.lineSeparator());
+                    shown++;
+                }
+                out.flush(); // Sem close(): fecharia o System.out
+                if (items.hasNext() && !askForNextPage()) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing to console: " + e.getMessage());
+        }
+        return shown;
+    }
+
+    private boolean askForNextPage() {
+        System.out.print("-- Press Enter for the next page or 'q' to stop: ");
+        return !scanner.nextLine().trim().equalsIgnoreCase("q");
+    }
+}
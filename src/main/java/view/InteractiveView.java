@@ -1,6 +1,6 @@
 package view;
 
-import entities.Account;
+import dto.AccountSummary;
 import entities.Client; // Importar Client para o login
 import services.AccountService;
 import services.CardService;
@@ -188,11 +188,11 @@ public class InteractiveView {
     // Método para visualizar todas as contas (Current e Savings) usando AccountService
     private void viewAllAccountsGeneric() {
         System.out.println("\n--- All Accounts (Current and Savings) ---");
-        List<Account> accounts = accountService.getAll(); // Usa o AccountService genérico
+        List<AccountSummary> accounts = accountService.getAllSummaries(); // Só as colunas exibidas
         if (accounts.isEmpty()) {
             System.out.println("No accounts registered in the system.");
         } else {
-            accounts.forEach(System.out::println);
+            new ConsolePager(scanner).show(accounts.iterator());
         }
         System.out.println("------------------------------------------");
     }
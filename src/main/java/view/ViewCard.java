@@ -1,5 +1,6 @@
 package view;
 
+import dto.CardSummary;
 import entities.Account;
 import entities.Card;
 import services.AccountService;
@@ -140,11 +141,11 @@ public class ViewCard {
 
     private void viewAllCards() {
         System.out.println("\n--- All Cards ---");
-        List<Card> cards = cardService.getAll();
+        List<CardSummary> cards = cardService.getAllSummaries(); // Só as colunas exibidas (sem CVV)
         if (cards.isEmpty()) {
             System.out.println("No cards registered.");
         } else {
-            cards.forEach(System.out::println);
+            new ConsolePager(scanner).show(cards.iterator());
         }
         System.out.println("-----------------");
     }
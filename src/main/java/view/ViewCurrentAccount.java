@@ -1,5 +1,6 @@
 package view;
 
+import dto.AccountSummary;
 import entities.Client;
 import entities.CurrentAccount;
 import services.ClientService;
@@ -99,11 +100,11 @@ public class ViewCurrentAccount {
 
     private void viewAllCurrentAccounts() {
         System.out.println("\n--- All Current Accounts ---");
-        List<CurrentAccount> accounts = currentAccountService.getAll();
+        List<AccountSummary> accounts = currentAccountService.getAllSummaries(); // Só as colunas exibidas
         if (accounts.isEmpty()) {
             System.out.println("No Current Accounts registered.");
         } else {
-            accounts.forEach(System.out::println);
+            new ConsolePager(scanner).show(accounts.iterator());
         }
         System.out.println("--------------------------");
     }
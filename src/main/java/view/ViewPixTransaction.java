@@ -130,7 +130,7 @@ public class ViewPixTransaction {
         if (pixTransactions.isEmpty()) {
             System.out.println("No Pix Transactions originated from this account.");
         } else {
-            pixTransactions.forEach(System.out::println);
+            new ConsolePager(scanner).show(pixTransactions.iterator());
         }
         System.out.println("--------------------------------------------------");
     }
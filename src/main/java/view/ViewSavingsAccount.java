@@ -1,13 +1,18 @@
 package view;
 
+import dto.AccountSummary;
+import dto.InterestAccrualResult;
 import entities.Client;
 import entities.SavingsAccount;
 import services.ClientService;
 import services.CurrentAccountService; // Necessário para a transferência
+import services.InterestAccrualJob;
 import services.SavingsAccountService;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Optional;
@@ -39,6 +44,7 @@ public class ViewSavingsAccount {
             System.out.println("6. Transfer from Savings to Current Account"); // Nova funcionalidade
             if(adm){
                 System.out.println("7. View All Savings Accounts");
+                System.out.println("8. Run Month-End Interest Accrual (all accounts)");
             }
             System.out.println("0. Back to Main Menu");
             System.out.print("Choose an option: ");
@@ -55,6 +61,13 @@ public class ViewSavingsAccount {
                     case 5 -> applyInterestToSavingsAccount();
                     case 6 -> transferToCurrent();
                     case 7 -> viewAllSavingsAccounts();
+                    case 8 -> {
+                        if (adm) {
+                            runMonthEndInterestAccrual();
+                        } else {
+                            System.out.println("Invalid choice. Please try again.");
+                        }
+                    }
                     case 0 -> System.out.println("Returning to main menu.");
                     default -> System.out.println("Invalid choice. Please try again.");
                 }
@@ -114,11 +127,11 @@ public class ViewSavingsAccount {
 
     private void viewAllSavingsAccounts() {
         System.out.println("\n--- All Savings Accounts ---");
-        List<SavingsAccount> accounts = savingsAccountService.getAll();
+        List<AccountSummary> accounts = savingsAccountService.getAllSummaries(); // Só as colunas exibidas
         if (accounts.isEmpty()) {
             System.out.println("No Savings Accounts registered.");
         } else {
-            accounts.forEach(System.out::println);
+            new ConsolePager(scanner).show(accounts.iterator());
         }
         System.out.println("--------------------------");
     }
@@ -164,6 +177,35 @@ public class ViewSavingsAccount {
         // O service já imprime feedback de sucesso/falha
     }
 
+    private void runMonthEndInterestAccrual() {
+        YearMonth currentMonth = YearMonth.now();
+        System.out.print("Enter period (yyyy-MM) [" + currentMonth + "]: ");
+        String periodStr = scanner.nextLine().trim();
+        YearMonth period;
+        try {
+            period = periodStr.isEmpty() ? currentMonth : YearMonth.parse(periodStr);
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid period format. Use yyyy-MM.");
+            return;
+        }
+        // O padrão vem da configuração do job (Main), então o prompt mostra o modo que a entrada vazia vai usar
+        System.out.print("Mode: (E)ntity by entity or (B)ulk SQL [" + savingsAccountService.getDefaultInterestAccrualMode() + "]: ");
+        String modeStr = scanner.nextLine().trim().toUpperCase();
+        InterestAccrualJob.Mode mode = modeStr.startsWith("B") ? InterestAccrualJob.Mode.BULK
+                : modeStr.startsWith("E") ? InterestAccrualJob.Mode.ENTITY : null;
+        try {
+            InterestAccrualResult result = savingsAccountService.accrueMonthlyInterest(period, mode);
+            System.out.printf("Interest accrual for %s finished in %d ms: %d accounts, %d accrued, %d skipped, total interest %s (%.0f accounts/s).%n",
+                    result.getPeriod(), result.getElapsedMillis(), result.getScanned(), result.getAccrued(), result.getSkipped(),
+                    result.getTotalInterest(), result.getAccountsPerSecond());
+            if (result.getFailedChunks() > 0) {
+                System.out.println(result.getFailedChunks() + " chunk(s) failed; run the accrual again to process the remaining accounts.");
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Interest accrual failed: " + e.getMessage());
+        }
+    }
+
     private void transferToCurrent() {
         System.out.print("Enter YOUR Savings Account number (source): ");
         String savingsAccNum = scanner.nextLine();
@@ -1,5 +1,6 @@
 package view;
 
+import dto.TransactionFilter;
 import entities.Account;
 import entities.Transaction;
 import services.AccountService;
@@ -9,7 +10,6 @@ import java.math.BigDecimal; // Importar BigDecimal
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.InputMismatchException;
-import java.util.List; // Importar List
 import java.util.Optional;
 import java.util.Scanner;
 
@@ -123,12 +123,46 @@ public class ViewTransaction {
     }
 
     private void viewAllTransactions() {
+        // Filtros opcionais; a lista vem do banco uma página por vez (seek por data e id)
+        System.out.print("Filter by account number (leave blank for all accounts): ");
+        String accountNumber = scanner.nextLine().trim();
+        Long accountId = null;
+        if (!accountNumber.isEmpty()) {
+            Optional<Account> accountOpt = accountService.getByAccountNumber(accountNumber);
+            if (accountOpt.isEmpty()) {
+                System.out.println("Account not found.");
+                return;
+            }
+            accountId = accountOpt.get().getId();
+        }
+        TransactionFilter filter;
+        try {
+            System.out.print("From date (YYYY-MM-DD) [Leave blank for no start]: ");
+            String fromStr = scanner.nextLine().trim();
+            System.out.print("To date (YYYY-MM-DD) [Leave blank for no end]: ");
+            String toStr = scanner.nextLine().trim();
+            filter = new TransactionFilter(accountId,
+                    fromStr.isEmpty() ? null : LocalDate.parse(fromStr),
+                    toStr.isEmpty() ? null : LocalDate.parse(toStr));
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid date format. Please use YYYY-MM-DD.");
+            return;
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
         System.out.println("\n--- All Transactions ---");
-        List<Transaction> transactions = transactionService.getAll(); // Agora retorna List<Transaction>
-        if (transactions.isEmpty()) {
+        int shown;
+        try {
+            shown = new ConsolePager(scanner).show(transactionService.iterateSummaries(filter, ConsolePager.DEFAULT_PAGE_SIZE));
+        } catch (RuntimeException e) {
+            System.out.println("Error loading transactions: " + e.getMessage() + ". The list is incomplete.");
+            System.out.println("------------------------");
+            return;
+        }
+        if (shown == 0) {
             System.out.println("No transactions registered.");
-        } else {
-            transactions.forEach(System.out::println); // Imprime cada transação
         }
         System.out.println("------------------------");
     }
@@ -0,0 +1,42 @@
+-- Esquema como o hbm2ddl.auto=update deixou o banco até as migrações existirem (mapeamentos atuais das entidades).
+-- Bancos que já têm as tabelas recebem esta versão como aplicada sem executar nada (ver SchemaMigrator).
+
+create table clients (id bigint not null, birth_date date not null, cpf varchar(14) not null, email varchar(100), name varchar(100) not null, password varchar(255) not null, phone varchar(20), primary key (id)) engine=InnoDB;
+create table Account (id bigint not null, accountNumber varchar(255) not null, balance decimal(19,2) not null, version bigint not null, client_id bigint not null, primary key (id)) engine=InnoDB;
+create table CurrentAccount (id bigint not null, primary key (id)) engine=InnoDB;
+create table SavingsAccount (interestRate decimal(38,2), latest_interest_update date, id bigint not null, primary key (id)) engine=InnoDB;
+create table cards (id bigint not null, cardNumber varchar(255) not null, cardType varchar(255) not null, creditLimit decimal(19,2) not null, cvv integer not null, validity date not null, version bigint not null, account_id bigint not null, primary key (id)) engine=InnoDB;
+create table pix_keys (id bigint not null, keyType enum ('CPF','EMAIL','PHONE','RANDOM') not null, keyValue varchar(255) not null, account_id bigint not null, primary key (id)) engine=InnoDB;
+create table transactions (id bigint not null, date date not null, typeTransaction varchar(255) not null, value decimal(19,2) not null, destination_account_id bigint not null, origin_account_id bigint not null, primary key (id)) engine=InnoDB;
+create table pix_transactions (id bigint not null, dateTime datetime(6) not null, keyTypeUsed enum ('CPF','EMAIL','PHONE','RANDOM') not null, pixKeyUsed varchar(255) not null, status enum ('PENDING','COMPLETED','FAILED','REFUNDED') not null, value decimal(19,2) not null, destination_account_id bigint, origin_account_id bigint not null, primary key (id)) engine=InnoDB;
+create table ledger_checkpoint (id bigint not null, last_sequence bigint not null, primary key (id)) engine=InnoDB;
+
+-- Tabelas que emulam as sequências dos geradores pooled (o IdSequenceAligner avança o next_val na inicialização)
+create table clients_seq (next_val bigint) engine=InnoDB;
+insert into clients_seq values (1);
+create table account_seq (next_val bigint) engine=InnoDB;
+insert into account_seq values (1);
+create table cards_seq (next_val bigint) engine=InnoDB;
+insert into cards_seq values (1);
+create table pix_keys_seq (next_val bigint) engine=InnoDB;
+insert into pix_keys_seq values (1);
+create table transactions_seq (next_val bigint) engine=InnoDB;
+insert into transactions_seq values (1);
+create table pix_transactions_seq (next_val bigint) engine=InnoDB;
+insert into pix_transactions_seq values (1);
+
+-- Mesmos nomes de constraint que o Hibernate gerava, para as próximas migrações poderem referenciá-los
+alter table clients add constraint UK_7it9dgecuhaofss241235vdcn unique (cpf);
+alter table clients add constraint UK_srv16ica2c1csub334bxjjb59 unique (email);
+alter table Account add constraint UK_27afjp0b8sbbdpqrgjubhpewl unique (accountNumber);
+alter table cards add constraint UK_6dvprn0y0oadgyy1outy5xwmq unique (cardNumber);
+alter table pix_keys add constraint UK_p8am4jj2v3yls9gjos7rnf5qd unique (keyValue);
+alter table Account add constraint FKs6uwswu9l19svmc00r9pfvaeb foreign key (client_id) references clients (id);
+alter table CurrentAccount add constraint FKj8u8xpg7tx9mhty7cuddu7vkj foreign key (id) references Account (id);
+alter table SavingsAccount add constraint FKia5jjv98s1rnhgsgm4b6ycxg foreign key (id) references Account (id);
+alter table cards add constraint FK4s4sst8ylop2qykcy702u4bes foreign key (account_id) references Account (id);
+alter table pix_keys add constraint FKr44gj7j6iftwu62l2a6jusoie foreign key (account_id) references Account (id);
+alter table transactions add constraint FKcdxnbihntfvthcpbh2b9x1iqp foreign key (origin_account_id) references Account (id);
+alter table transactions add constraint FKldpkbnl0w82kh1fltx783n7bv foreign key (destination_account_id) references Account (id);
+alter table pix_transactions add constraint FK4vp5kgj2bvqlyqggklpt407ng foreign key (origin_account_id) references Account (id);
+alter table pix_transactions add constraint FKg1jf283v8ymgd6d7p9cb97t13 foreign key (destination_account_id) references Account (id);
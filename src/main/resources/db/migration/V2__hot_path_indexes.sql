@@ -0,0 +1,21 @@
+-- Índices compostos para os caminhos de acesso mais usados.
+-- No MySQL cada FK criou um índice só com a coluna; quando um índice composto começa pela mesma coluna ele também
+-- atende a FK, então o índice antigo é removido (menos um índice para manter em cada INSERT).
+
+-- Extrato por conta de origem / destino em ordem (date, id): findPage, findSummaryPage e streamAll com filtro de conta
+create index idx_transactions_origin_date_id on transactions (origin_account_id, date, id);
+drop index FKcdxnbihntfvthcpbh2b9x1iqp on transactions;
+create index idx_transactions_destination_date_id on transactions (destination_account_id, date, id);
+drop index FKldpkbnl0w82kh1fltx783n7bv on transactions;
+
+-- Listagem geral e filtro só por período, também em ordem (date, id)
+create index idx_transactions_date_id on transactions (date, id);
+
+-- Pix por conta de origem, mais recentes primeiro (findAllByAccount)
+create index idx_pix_transactions_origin_datetime_id on pix_transactions (origin_account_id, dateTime, id);
+drop index FK4vp5kgj2bvqlyqggklpt407ng on pix_transactions;
+
+-- Consultas de Pix por período (conciliação do dia)
+create index idx_pix_transactions_datetime on pix_transactions (dateTime);
+
+-- cards.account_id já tem o índice da FK (FK4s4sst8ylop2qykcy702u4bes), que atende a busca dos cartões de uma conta
@@ -0,0 +1,6 @@
+-- Chaves de idempotência das transferências e do Pix (ver IdempotencyService).
+-- A chave primária é a própria chave enviada pelo cliente: duas requisições com a mesma chave nunca gravam duas vezes.
+create table idempotency_keys (idempotency_key varchar(64) not null, operation varchar(20) not null, request_hash varchar(64) not null, result_id bigint, created_at datetime(6) not null, primary key (idempotency_key)) engine=InnoDB;
+
+-- Limpeza das chaves mais velhas que a retenção (IdempotencyRepository.deleteOlderThan)
+create index idx_idempotency_keys_created_at on idempotency_keys (created_at);
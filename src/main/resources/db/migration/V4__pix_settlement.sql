@@ -0,0 +1,3 @@
+-- Liquidação assíncrona do Pix: a varredura do PixSettlementPipeline busca as PENDING em ordem de id
+-- (findPendingSettlements). Quase todas as linhas estão COMPLETED, então o índice vai direto às poucas pendentes.
+create index idx_pix_transactions_status_id on pix_transactions (status, id);
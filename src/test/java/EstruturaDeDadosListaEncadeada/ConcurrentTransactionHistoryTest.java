@@ -0,0 +1,118 @@
+package EstruturaDeDadosListaEncadeada;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Vários produtores chamando add() ao mesmo tempo, com leitores percorrendo fotografias durante as gravações.
+// O id de cada transação codifica o produtor (id / PER_WRITER) e a ordem em que ele a adicionou (id % PER_WRITER).
+class ConcurrentTransactionHistoryTest {
+
+    private static final int WRITERS = 8;
+    private static final int READERS = 2;
+    private static final int PER_WRITER = 20_000;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void concurrentAddsAreAllKeptOnceAndSnapshotsStayConsistent() throws Exception {
+        ConcurrentTransactionHistory history = new ConcurrentTransactionHistory();
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                long firstId = (long) w * PER_WRITER;
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < PER_WRITER; i++) {
+                        history.add(firstId + i, "Transfer", 1.0, FIRST_DAY.plusDays(i % 10), null, null);
+                    }
+                    return null;
+                }));
+            }
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; r++) {
+                readers.add(pool.submit(() -> {
+                    start.await();
+                    int snapshots = 0;
+                    int previousCount = 0;
+                    do {
+                        int count = checkSnapshot(history, failures);
+                        if (count < previousCount) {
+                            failures.add("Snapshot shrank from " + previousCount + " to " + count);
+                        }
+                        previousCount = count;
+                        snapshots++;
+                    } while (writing.get());
+                    return snapshots;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            int snapshots = 0;
+            for (Future<Integer> reader : readers) {
+                snapshots += reader.get(60, TimeUnit.SECONDS);
+            }
+            assertTrue(snapshots > READERS, "Readers should iterate while the writers are adding");
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertTrue(failures.isEmpty(), () -> failures.size() + " inconsistent snapshots, first: " + failures.peek());
+
+        int total = WRITERS * PER_WRITER;
+        assertEquals(total, history.size());
+        Set<Long> ids = new HashSet<>();
+        int count = 0;
+        for (TransactionInMemory transaction : history) {
+            ids.add(transaction.getId());
+            count++;
+        }
+        assertEquals(total, count);
+        assertEquals(total, ids.size());
+        for (long id = 0; id < total; id++) {
+            assertTrue(ids.contains(id), "Missing transaction " + id);
+        }
+        assertEquals(total, history.findByDateRange(FIRST_DAY, FIRST_DAY.plusDays(9)).size());
+    }
+
+    // Percorre uma fotografia: cada id aparece uma vez e cada produtor aparece em ordem e sem buracos
+    private static int checkSnapshot(ConcurrentTransactionHistory history, ConcurrentLinkedQueue<String> failures) {
+        Set<Long> seen = new HashSet<>();
+        long[] nextOfWriter = new long[WRITERS];
+        int count = 0;
+        for (TransactionInMemory transaction : history) {
+            long id = transaction.getId();
+            if (!seen.add(id)) {
+                failures.add("Transaction " + id + " appeared twice in one snapshot");
+            }
+            int writer = (int) (id / PER_WRITER);
+            if (id % PER_WRITER != nextOfWriter[writer]) {
+                failures.add("Writer " + writer + " expected " + nextOfWriter[writer] + " but saw " + id % PER_WRITER);
+            }
+            nextOfWriter[writer] = id % PER_WRITER + 1;
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,117 @@
+package repository;
+
+import dto.TransactionFilter;
+import dto.TransactionPage;
+import dto.TransactionSummary;
+import entities.Account;
+import entities.Client;
+import entities.CurrentAccount;
+import entities.Transaction;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.JPAUtil;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Garante que a listagem paginada não volta a fazer N+1: uma página é um SELECT (dois com filtro por conta,
+// um para cada lado da transferência), sem carregar entidades. Usa H2 em memória com as estatísticas do Hibernate.
+class TransactionRepositoryStatementCountTest {
+
+    private static final int TRANSACTIONS = 40;
+    private static final int PAGE_SIZE = 10;
+
+    private static TransactionRepository repository;
+    private static Statistics statistics;
+    private static Account origin;
+
+    @BeforeAll
+    static void setUp() {
+        JPAUtil.init("sa", "", Map.of(
+                "jakarta.persistence.jdbc.driver", "org.h2.Driver",
+                "jakarta.persistence.jdbc.url", "jdbc:h2:mem:summary-page;DB_CLOSE_DELAY=-1;NON_KEYWORDS=VALUE,DATE",
+                "hibernate.dialect", "org.hibernate.dialect.H2Dialect",
+                "hibernate.hbm2ddl.auto", "create",
+                "hibernate.generate_statistics", "true",
+                "hibernate.hikari.connectionInitSql", "SET LOCK_TIMEOUT 5000",
+                "hibernate.hikari.registerMbeans", "false"));
+
+        Client client = new Client(LocalDate.of(1990, 1, 1), "12345678901", "ana@inovabank.com", "Ana", "secret", "11999999999");
+        new ClientRepository().create(client);
+        CurrentAccountRepository accounts = new CurrentAccountRepository();
+        for (int i = 0; i < 3; i++) {
+            accounts.create(new CurrentAccount("SP-" + i, new BigDecimal("1000.00"), client));
+        }
+        List<Account> all = new AccountRepository().getAll();
+        origin = all.get(0);
+
+        repository = new TransactionRepository(new TransferEngine());
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            Account from = all.get(i % 3);
+            Account to = all.get((i + 1) % 3);
+            transactions.add(new Transaction("Transfer", new BigDecimal("1.00"), LocalDate.of(2024, 1, 1).plusDays(i), from, to));
+        }
+        repository.createBatch(transactions);
+
+        statistics = JPAUtil.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        JPAUtil.closeEntityManagerFactory();
+    }
+
+    @BeforeEach
+    void clearStatistics() {
+        statistics.clear();
+    }
+
+    @Test
+    void summaryPageIsOneStatement() {
+        TransactionPage<TransactionSummary> page = repository.findSummaryPage(TransactionFilter.none(), null, PAGE_SIZE);
+
+        assertEquals(PAGE_SIZE, page.getItems().size());
+        for (TransactionSummary summary : page.getItems()) {
+            assertNotNull(summary.getOriginAccountNumber());
+            assertNotNull(summary.getDestinationAccountNumber());
+        }
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void everyPageCostsTheSameNumberOfStatements() {
+        TransactionPage<TransactionSummary> page = repository.findSummaryPage(TransactionFilter.none(), null, PAGE_SIZE);
+        int pages = 1;
+        while (page.hasMore()) {
+            page = repository.findSummaryPage(TransactionFilter.none(), page.getNextCursor(), PAGE_SIZE);
+            pages++;
+        }
+
+        assertEquals(TRANSACTIONS / PAGE_SIZE, pages);
+        assertEquals(pages, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void accountFilterIsOneStatementPerSide() {
+        TransactionFilter filter = TransactionFilter.forAccount(origin.getId());
+        TransactionPage<TransactionSummary> page = repository.findSummaryPage(filter, null, PAGE_SIZE);
+
+        assertTrue(page.getItems().size() > 0);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+}